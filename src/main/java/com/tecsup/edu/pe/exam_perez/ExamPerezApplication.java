@@ -2,8 +2,10 @@ package com.tecsup.edu.pe.exam_perez;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ExamPerezApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,77 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCryptPasswordEncoder con un factor de trabajo elegido según el hardware
+ * Marca para re-hash las contraseñas cuyo costo almacenado sea menor que el actual
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final int MAX_STRENGTH = 31;
+    private static final int SAMPLE_STRENGTH = 8;
+    private static final int SAMPLES = 3;
+
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Re-hash solo si el costo almacenado es menor que el configurado
+     * Un costo mayor se conserva: la calibración puede variar entre nodos o reinicios y
+     * bajar el costo debilitaría el hash y provocaría escrituras en cada login alternado
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int storedStrength = extractStrength(encodedPassword);
+        return storedStrength > 0 && storedStrength < strength;
+    }
+
+    /**
+     * Elegir el mayor costo cuyo tiempo de hash no supere el objetivo
+     * Se mide a costo bajo y se extrapola: cada punto de costo duplica el tiempo
+     */
+    public static int calibrateStrength(long targetMillis, int minStrength) {
+        String salt = BCrypt.gensalt(SAMPLE_STRENGTH);
+
+        // Calentamiento para no medir la compilación JIT
+        BCrypt.hashpw("calibration", salt);
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        double sampleMillis = Math.max(bestNanos / 1_000_000.0, 0.001);
+        int strength = SAMPLE_STRENGTH + (int) Math.floor(Math.log(targetMillis / sampleMillis) / Math.log(2));
+        return Math.max(minStrength, Math.min(MAX_STRENGTH, strength));
+    }
+
+    /**
+     * Leer el costo de un hash con formato $2a$NN$...; retorna -1 si no es BCrypt
+     */
+    static int extractStrength(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int costStart = encodedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 > encodedPassword.length()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(costStart, costStart + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Inyecta el usuario autenticado en un parámetro de un controlador
+ * Admite UserPrincipal (sin acceso a BD) o la entidad User (se carga solo si se declara)
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
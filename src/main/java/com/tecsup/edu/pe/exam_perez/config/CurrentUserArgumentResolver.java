@@ -0,0 +1,51 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import com.tecsup.edu.pe.exam_perez.entity.User;
+import com.tecsup.edu.pe.exam_perez.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resuelve parámetros anotados con @CurrentUser a partir del principal que
+ * JwtAuthenticationFilter ya autenticó, sin volver a leer ni parsear el header Authorization
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Autowired
+    private UserService userService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && (UserPrincipal.class.isAssignableFrom(parameter.getParameterType())
+                    || User.class.isAssignableFrom(parameter.getParameterType()));
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            return null;
+        }
+
+        if (UserPrincipal.class.isAssignableFrom(parameter.getParameterType())) {
+            return principal;
+        }
+
+        // Solo los handlers que piden la entidad completa pagan la consulta
+        return userService.getUserByUsername(principal.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    }
+}
@@ -1,11 +1,15 @@
 package com.tecsup.edu.pe.exam_perez.config;
 
+import com.tecsup.edu.pe.exam_perez.entity.User;
 import com.tecsup.edu.pe.exam_perez.service.CustomUserDetailsService;
+import com.tecsup.edu.pe.exam_perez.service.TokenRevocationService;
+import com.tecsup.edu.pe.exam_perez.service.UserTokenStateRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,9 +29,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private UserTokenStateRegistry userTokenStateRegistry;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // Modo sin estado: el principal se construye con los claims del token, sin consultar la BD
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                   HttpServletResponse response,
@@ -36,13 +53,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String requestTokenHeader = request.getHeader("Authorization");
 
         String username = null;
-        String jwtToken = null;
+        VerifiedToken verifiedToken = null;
 
         // JWT Token está en la forma "Bearer token". Remover Bearer y obtener solo el token
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
+            String jwtToken = requestTokenHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwtToken);
+                // Se verifica la firma una sola vez (o se reutiliza desde la caché)
+                verifiedToken = verifiedTokenCache.verify(jwtToken);
+
+                // Tokens revocados (logout): comprobación en memoria, sin acceso a BD
+                if (tokenRevocationService.isRevoked(verifiedToken)) {
+                    logger.debug("JWT Token revocado");
+                } else {
+                    username = verifiedToken.getSubject();
+                }
             } catch (Exception e) {
                 logger.error("No se puede obtener el username del JWT Token: " + e.getMessage());
             }
@@ -53,14 +78,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Una vez obtenido el token, validarlo
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = statelessEnabled
+                    ? buildUserDetailsFromClaims(verifiedToken)
+                    : null;
+
+            if (userDetails == null) {
+                userDetails = this.userDetailsService.loadUserByUsername(username);
+            }
 
             // Si el token es válido, configurar Spring Security para establecer la autenticación manualmente
-            if (jwtUtil.validateToken(jwtToken, userDetails)) {
+            if (userDetails.isEnabled() && jwtUtil.validateToken(verifiedToken, userDetails)) {
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                     new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        userDetails, verifiedToken, userDetails.getAuthorities());
 
                 usernamePasswordAuthenticationToken
                     .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -72,4 +103,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    /**
+     * Construir el principal a partir de los claims del token
+     * Retorna null si el token no trae los claims necesarios (se usa la BD como respaldo)
+     */
+    private UserDetails buildUserDetailsFromClaims(VerifiedToken verifiedToken) {
+        Number userId = verifiedToken.getClaim(JwtUtil.CLAIM_USER_ID, Number.class);
+        Number tokenVersion = verifiedToken.getClaim(JwtUtil.CLAIM_TOKEN_VERSION, Number.class);
+        String role = verifiedToken.getClaim(JwtUtil.CLAIM_ROLE, String.class);
+        Boolean active = verifiedToken.getClaim(JwtUtil.CLAIM_ACTIVE, Boolean.class);
+
+        if (userId == null || tokenVersion == null || role == null || active == null) {
+            return null;
+        }
+
+        // Rechazar tokens emitidos antes de una desactivación o cambio de credenciales
+        boolean current = userTokenStateRegistry.isCurrent(
+                verifiedToken.getSubject(), userId.longValue(), tokenVersion.intValue());
+
+        return new UserPrincipal(
+                userId.longValue(),
+                verifiedToken.getSubject(),
+                "",
+                active && current,
+                CustomUserDetailsService.getAuthorities(User.Role.valueOf(role))
+        );
+    }
 }
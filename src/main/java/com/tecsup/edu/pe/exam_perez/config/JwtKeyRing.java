@@ -0,0 +1,232 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjunto de claves asimétricas (ES256) para firmar tokens JWT
+ * Las claves se leen de un keystore (PKCS12 por defecto): cada entrada EC P-256 es una clave
+ * cuyo "kid" es su alias; jwt.signing.active-kid indica la que firma y las demás solo verifican.
+ * Así todas las instancias firman con la misma clave y los tokens sobreviven a un reinicio.
+ * Para rotar se agrega la nueva entrada al keystore, se cambia active-kid y la anterior se quita
+ * cuando expire el último token que pudo firmar; el keystore se relee periódicamente.
+ * Las claves públicas se publican como JWKS para que otros servicios verifiquen localmente.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.ES256;
+    private static final int COORDINATE_BYTES = 32;
+    private static final int KEY_BITS = 256;
+
+    // Claves vigentes y la activa, publicadas juntas para que se lean de forma consistente
+    private volatile Keys keys = new Keys(Map.of(), null);
+
+    @Value("${jwt.signing.algorithm:HS256}")
+    private String algorithm;
+
+    @Value("${jwt.signing.keystore.path:}")
+    private String keystorePath;
+
+    @Value("${jwt.signing.keystore.type:PKCS12}")
+    private String keystoreType;
+
+    @Value("${jwt.signing.keystore.password:}")
+    private String keystorePassword;
+
+    @Value("${jwt.signing.active-kid:}")
+    private String activeKid;
+
+    /**
+     * En modo ES256 la aplicación no arranca sin un keystore válido
+     */
+    @PostConstruct
+    void init() {
+        if (isEnabled()) {
+            keys = load();
+            log.info("Claves de firma JWT cargadas: {} (activa: {})", keys.byKid.keySet(), keys.current.kid);
+        }
+    }
+
+    /**
+     * Indica si la aplicación firma con claves asimétricas
+     */
+    public boolean isEnabled() {
+        return ALGORITHM.getValue().equalsIgnoreCase(algorithm);
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    /**
+     * Clave activa para firmar
+     */
+    public SigningKey currentKey() {
+        SigningKey key = keys.current;
+        if (key == null) {
+            throw new IllegalStateException("No hay clave de firma ES256 configurada");
+        }
+        return key;
+    }
+
+    /**
+     * Clave pública para verificar un token según su "kid"; null si es desconocido o ya retirado
+     */
+    public Key verificationKey(String kid) {
+        SigningKey key = kid != null ? keys.byKid.get(kid) : null;
+        return key != null ? key.keyPair.getPublic() : null;
+    }
+
+    /**
+     * Releer el keystore para aplicar una rotación; si falla se conservan las claves actuales
+     */
+    @Scheduled(initialDelayString = "${jwt.signing.reload-interval-ms:60000}",
+               fixedDelayString = "${jwt.signing.reload-interval-ms:60000}")
+    public void reload() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Keys loaded = load();
+            if (!loaded.byKid.keySet().equals(keys.byKid.keySet()) || !loaded.current.kid.equals(keys.current.kid)) {
+                log.info("Claves de firma JWT actualizadas: {} (activa: {})", loaded.byKid.keySet(), loaded.current.kid);
+            }
+            keys = loaded;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo releer el keystore de firma JWT: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claves públicas vigentes en formato JWKS (RFC 7517)
+     */
+    public Map<String, Object> toJwks() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        if (isEnabled()) {
+            for (SigningKey key : keys.byKid.values()) {
+                ECPublicKey publicKey = (ECPublicKey) key.keyPair.getPublic();
+                Map<String, Object> jwk = new LinkedHashMap<>();
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("use", "sig");
+                jwk.put("alg", ALGORITHM.getValue());
+                jwk.put("kid", key.kid);
+                jwk.put("x", encodeCoordinate(publicKey.getW().getAffineX()));
+                jwk.put("y", encodeCoordinate(publicKey.getW().getAffineY()));
+                jwks.add(jwk);
+            }
+        }
+        return Map.of("keys", jwks);
+    }
+
+    /**
+     * Leer todas las entradas EC P-256 del keystore; el alias de cada una es su "kid"
+     */
+    private Keys load() {
+        if (keystorePath == null || keystorePath.isBlank()) {
+            throw new IllegalStateException("jwt.signing.algorithm=ES256 requiere jwt.signing.keystore.path");
+        }
+        char[] password = keystorePassword.toCharArray();
+        Map<String, SigningKey> byKid = new LinkedHashMap<>();
+
+        try (InputStream input = Files.newInputStream(Path.of(keystorePath))) {
+            KeyStore keyStore = KeyStore.getInstance(keystoreType);
+            keyStore.load(input, password);
+            for (String alias : Collections.list(keyStore.aliases())) {
+                if (!keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                Key privateKey = keyStore.getKey(alias, password);
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (privateKey instanceof ECPrivateKey ecKey && certificate != null
+                        && ecKey.getParams().getCurve().getField().getFieldSize() == KEY_BITS) {
+                    byKid.put(alias, new SigningKey(alias, new KeyPair(certificate.getPublicKey(), ecKey)));
+                } else {
+                    log.warn("Entrada '{}' del keystore ignorada: no es una clave EC P-256", alias);
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo leer el keystore de firma JWT: " + e.getMessage(), e);
+        }
+
+        if (byKid.isEmpty()) {
+            throw new IllegalStateException("El keystore de firma JWT no contiene claves EC P-256");
+        }
+        String kid = activeKid == null || activeKid.isBlank()
+                ? (byKid.size() == 1 ? byKid.keySet().iterator().next() : null)
+                : activeKid;
+        SigningKey current = kid != null ? byKid.get(kid) : null;
+        if (current == null) {
+            throw new IllegalStateException("jwt.signing.active-kid debe ser uno de " + byKid.keySet());
+        }
+        return new Keys(Collections.unmodifiableMap(byKid), current);
+    }
+
+    /**
+     * Coordenada como entero sin signo de tamaño fijo en Base64URL sin relleno
+     */
+    private static String encodeCoordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[COORDINATE_BYTES];
+        int length = Math.min(bytes.length, COORDINATE_BYTES);
+        System.arraycopy(bytes, bytes.length - length, fixed, COORDINATE_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    private record Keys(Map<String, SigningKey> byKid, SigningKey current) {
+    }
+
+    /**
+     * Par de claves con su identificador
+     */
+    public static final class SigningKey {
+        private final String kid;
+        private final KeyPair keyPair;
+
+        private SigningKey(String kid, KeyPair keyPair) {
+            this.kid = kid;
+            this.keyPair = keyPair;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public PrivateKey getPrivateKey() {
+            return keyPair.getPrivate();
+        }
+
+        @Override
+        public String toString() {
+            return "SigningKey{kid='" + kid + "'}";
+        }
+    }
+}
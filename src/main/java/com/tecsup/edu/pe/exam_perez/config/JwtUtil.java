@@ -1,37 +1,107 @@
 package com.tecsup.edu.pe.exam_perez.config;
 
+import com.tecsup.edu.pe.exam_perez.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
  * Utilidad para manejo de JWT (JSON Web Tokens)
  * Incluye generación, validación y extracción de claims
+ * Firma con HS256 (jwt.secret) o, si jwt.signing.algorithm=ES256, con las claves rotativas de JwtKeyRing
  */
 @Component
 public class JwtUtil {
 
+    // Claims propios usados por el modo de autenticación sin estado
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ACTIVE = "active";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Solo durante la migración de HS256 a ES256: aceptar los tokens HS256 (sin "kid") aún vigentes
+    @Value("${jwt.signing.accept-legacy-hs256:false}")
+    private boolean acceptLegacyHs256;
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    // Clave y parser precalculados: ambos son inmutables y seguros entre hilos
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveVerificationKey(header);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Elegir la clave de verificación según el "kid" del header
+     * En modo ES256 un token sin "kid" (HS256) solo se acepta con jwt.signing.accept-legacy-hs256=true
+     */
+    private Key resolveVerificationKey(JwsHeader header) {
+        if (!keyRing.isEnabled()) {
+            return signingKey;
+        }
+        if (header.getKeyId() == null) {
+            if (acceptLegacyHs256) {
+                return signingKey;
+            }
+            throw new SignatureException("Token sin kid rechazado en modo ES256");
+        }
+        Key key = keyRing.verificationKey(header.getKeyId());
+        if (key == null) {
+            throw new SignatureException("Clave de firma desconocida o retirada: " + header.getKeyId());
+        }
+        return key;
+    }
+
     /**
      * Obtener la clave secreta para firmar tokens
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
+    }
+
+    /**
+     * Verificar firma y expiración del token una sola vez
+     * Lanza JwtException si el token es inválido o ha expirado
+     */
+    public VerifiedToken verifyToken(String token) {
+        return new VerifiedToken(extractAllClaims(token));
     }
 
     /**
@@ -60,11 +130,7 @@ public class JwtUtil {
      * Extraer todos los claims del token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -90,15 +156,39 @@ public class JwtUtil {
         return createToken(claims, userDetails.getUsername());
     }
 
+    /**
+     * Generar token con el rol, estado y versión del usuario embebidos
+     * Permite construir el principal a partir de los claims sin consultar la base de datos
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_ACTIVE, user.getActive());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion() != null ? user.getTokenVersion() : 0);
+        return createToken(claims, user.getUsername());
+    }
+
     /**
      * Crear el token JWT
      */
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .setExpiration(new Date(System.currentTimeMillis() + expiration));
+
+        if (keyRing.isEnabled()) {
+            JwtKeyRing.SigningKey currentKey = keyRing.currentKey();
+            return builder
+                    .setHeaderParam(JwsHeader.KEY_ID, currentKey.getKid())
+                    .signWith(currentKey.getPrivateKey(), keyRing.getAlgorithm())
+                    .compact();
+        }
+
+        return builder
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
@@ -111,6 +201,15 @@ public class JwtUtil {
         return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
     }
 
+    /**
+     * Validar un token ya verificado sin volver a parsearlo
+     */
+    public boolean validateToken(VerifiedToken verifiedToken, UserDetails userDetails) {
+        return verifiedToken.getSubject() != null
+                && verifiedToken.getSubject().equals(userDetails.getUsername())
+                && !verifiedToken.isExpired();
+    }
+
     /**
      * Verificar si el token es válido (no expirado y bien formado)
      */
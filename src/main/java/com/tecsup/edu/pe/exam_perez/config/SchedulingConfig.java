@@ -0,0 +1,43 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Planificadores de tareas periódicas
+ * El vencimiento de reservas y la escritura diferida del stock en memoria corren en un
+ * planificador propio: una purga de revocaciones o una reconstrucción del autocompletado
+ * lentas no retrasan la devolución de stock vencido ni el vaciado del diario.
+ * Cada una de esas dos tareas tiene además su propio hilo, para no esperarse entre sí.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String STOCK_SCHEDULER = "stockTaskScheduler";
+
+    /**
+     * Planificador general de @Scheduled (spring.task.scheduling.*), el que Spring Boot
+     * crearía si no existiera el de stock
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Planificador de las tareas de stock: @Scheduled(scheduler = SchedulingConfig.STOCK_SCHEDULER)
+     */
+    @Bean(name = STOCK_SCHEDULER)
+    public ThreadPoolTaskScheduler stockTaskScheduler(@Value("${products.scheduling.pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("stock-scheduling-");
+        // Al apagar se deja terminar el corte del diario o el vencimiento en curso
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+}
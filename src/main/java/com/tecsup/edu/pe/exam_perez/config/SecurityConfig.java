@@ -1,7 +1,11 @@
 package com.tecsup.edu.pe.exam_perez.config;
 
 import com.tecsup.edu.pe.exam_perez.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,7 +15,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -30,22 +33,64 @@ import java.util.Arrays;
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Value("${security.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${security.password-hashing.timeout-ms:5000}")
+    private long passwordHashingTimeoutMs;
+
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private long passwordHashingRetryAfterSeconds;
+
+    @Value("${security.password-hashing.bcrypt-strength:0}")
+    private int bcryptStrength;
+
+    @Value("${security.password-hashing.target-hash-ms:250}")
+    private long targetHashMillis;
+
+    @Value("${security.password-hashing.min-strength:10}")
+    private int minBcryptStrength;
+
+    /**
+     * BCrypt se ejecuta en un pool dedicado y acotado (por defecto un hilo por núcleo)
+     * Si no se fija bcrypt-strength, el costo se calibra al arrancar según target-hash-ms
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = passwordHashingThreads > 0
+                ? passwordHashingThreads
+                : Runtime.getRuntime().availableProcessors();
+
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : CalibratedBCryptPasswordEncoder.calibrateStrength(targetHashMillis, minBcryptStrength);
+        log.info("Costo de BCrypt configurado: {}", strength);
+
+        return new BoundedPasswordEncoder(
+                new CalibratedBCryptPasswordEncoder(strength),
+                threads,
+                passwordHashingQueueCapacity,
+                passwordHashingTimeoutMs,
+                passwordHashingRetryAfterSeconds,
+                meterRegistry);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -55,7 +100,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           DaoAuthenticationProvider authenticationProvider) throws Exception {
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -69,6 +115,8 @@ public class SecurityConfig {
 
                 // Rutas de productos - diferentes niveles de acceso
                 .requestMatchers("GET", "/api/products/**").hasAnyRole("USER", "ADMIN")
+                // Operaciones de stock del checkout (antes de la regla general de POST)
+                .requestMatchers("POST", "/api/products/stock/**").hasAnyRole("USER", "ADMIN")
                 .requestMatchers("POST", "/api/products/**").hasRole("ADMIN")
                 .requestMatchers("PUT", "/api/products/**").hasRole("ADMIN")
                 .requestMatchers("DELETE", "/api/products/**").hasRole("ADMIN")
@@ -83,7 +131,7 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             );
 
-        http.authenticationProvider(authenticationProvider());
+        http.authenticationProvider(authenticationProvider);
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -0,0 +1,25 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal autenticado que además conserva el ID del usuario
+ * Permite referenciar al usuario actual (por ejemplo como clave foránea) sin consultar la BD
+ */
+public class UserPrincipal extends User {
+
+    private final Long userId;
+
+    public UserPrincipal(Long userId, String username, String password, boolean enabled,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
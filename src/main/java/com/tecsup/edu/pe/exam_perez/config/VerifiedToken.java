@@ -0,0 +1,87 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token JWT ya verificado (firma y expiración)
+ * Inmutable: se construye una sola vez por token y se puede compartir entre hilos
+ */
+public final class VerifiedToken {
+
+    private final String id;
+    private final String subject;
+    private final long issuedAtMillis;
+    private final long expirationMillis;
+    private final Map<String, Object> claims;
+
+    VerifiedToken(Claims claims) {
+        this.id = claims.getId();
+        this.subject = claims.getSubject();
+        this.issuedAtMillis = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+        this.expirationMillis = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        this.claims = Collections.unmodifiableMap(new HashMap<>(claims));
+    }
+
+    /**
+     * Identificador único del token (claim "jti"); null en tokens antiguos
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Date getIssuedAt() {
+        return new Date(issuedAtMillis);
+    }
+
+    public long getIssuedAtMillis() {
+        return issuedAtMillis;
+    }
+
+    public Date getExpiration() {
+        return new Date(expirationMillis);
+    }
+
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    /**
+     * Obtener un claim específico con el tipo indicado
+     */
+    public <T> T getClaim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    /**
+     * Verificar si el token ya expiró en el instante dado
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return expirationMillis <= nowMillis;
+    }
+
+    public boolean isExpired() {
+        return isExpiredAt(System.currentTimeMillis());
+    }
+
+    @Override
+    public String toString() {
+        return "VerifiedToken{" +
+                "subject='" + subject + '\'' +
+                ", expiration=" + getExpiration() +
+                '}';
+    }
+}
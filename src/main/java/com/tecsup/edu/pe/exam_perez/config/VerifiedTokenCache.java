@@ -0,0 +1,130 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché en memoria de tokens JWT ya verificados
+ * La clave es el SHA-256 del token (tamaño fijo) y cada entrada vence con el "exp" del propio token.
+ * Caffeine acota el tamaño y expulsa en O(1) amortizado (sin recorrer la caché al llenarse);
+ * la lectura no toma locks y un acierto evita por completo la verificación de la firma.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final Cache<ByteBuffer, VerifiedToken> entries;
+    private final boolean enabled;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.max-size:10000}") long maxSize) {
+        this.enabled = enabled;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.cache.hits", this, VerifiedTokenCache::getHitCount).register(registry);
+        FunctionCounter.builder("jwt.cache.misses", this, VerifiedTokenCache::getMissCount).register(registry);
+        FunctionCounter.builder("jwt.cache.evictions", this, VerifiedTokenCache::getEvictionCount).register(registry);
+        Gauge.builder("jwt.cache.size", entries, Cache::estimatedSize).register(registry);
+    }
+
+    /**
+     * Obtener el token verificado desde la caché o verificarlo con JwtUtil
+     * Lanza JwtException si el token es inválido o ha expirado (y entonces no se guarda)
+     */
+    public VerifiedToken verify(String token) {
+        if (!enabled) {
+            return jwtUtil.verifyToken(token);
+        }
+        return entries.get(digest(token), key -> jwtUtil.verifyToken(token));
+    }
+
+    /**
+     * Quitar un token de la caché (por ejemplo al revocarlo)
+     */
+    public void invalidate(String token) {
+        entries.invalidate(digest(token));
+    }
+
+    /**
+     * Vaciar la caché
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return entries.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return entries.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return entries.stats().evictionCount();
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    private static ByteBuffer digest(String token) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return ByteBuffer.wrap(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Cada entrada vive hasta el "exp" de su token; leerla no extiende su vida
+     */
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, VerifiedToken token, long currentTime) {
+            long remainingMillis = token.getExpirationMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, VerifiedToken token, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, VerifiedToken token, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
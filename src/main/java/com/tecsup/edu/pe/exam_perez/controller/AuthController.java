@@ -1,26 +1,36 @@
 package com.tecsup.edu.pe.exam_perez.controller;
 
+import com.tecsup.edu.pe.exam_perez.config.CurrentUser;
+import com.tecsup.edu.pe.exam_perez.config.JwtKeyRing;
 import com.tecsup.edu.pe.exam_perez.config.JwtUtil;
+import com.tecsup.edu.pe.exam_perez.config.VerifiedToken;
+import com.tecsup.edu.pe.exam_perez.config.VerifiedTokenCache;
 import com.tecsup.edu.pe.exam_perez.dto.ApiResponse;
 import com.tecsup.edu.pe.exam_perez.dto.JwtResponse;
 import com.tecsup.edu.pe.exam_perez.dto.LoginRequest;
+import com.tecsup.edu.pe.exam_perez.dto.RevokeTokenRequest;
 import com.tecsup.edu.pe.exam_perez.entity.User;
+import com.tecsup.edu.pe.exam_perez.exception.PasswordHashingRejectedException;
+import com.tecsup.edu.pe.exam_perez.service.TokenRevocationService;
 import com.tecsup.edu.pe.exam_perez.service.UserService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,15 +44,21 @@ import java.util.Map;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class AuthController {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private UserService userService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     /**
      * Endpoint para iniciar sesión
      */
@@ -60,20 +76,11 @@ public class AuthController {
     })
     public ResponseEntity<ApiResponse<JwtResponse>> login(@Valid @RequestBody LoginRequest loginRequest) {
         try {
-            // Buscar usuario por username o email
-            User user = userService.getUserByUsername(loginRequest.getUsernameOrEmail())
-                    .or(() -> userService.getUserByEmail(loginRequest.getUsernameOrEmail()))
-                    .orElseThrow(() -> new BadCredentialsException("Usuario no encontrado"));
-
-            // Autenticar usuario
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(user.getUsername(), loginRequest.getPassword())
-            );
+            // Buscar usuario (username o email) y verificar la contraseña en un solo paso
+            User user = userService.authenticate(loginRequest.getUsernameOrEmail(), loginRequest.getPassword());
 
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-
-            // Generar token JWT
-            String token = jwtUtil.generateToken(userDetails);
+            // Generar token JWT (incluye rol, estado y versión para el modo sin estado)
+            String token = jwtUtil.generateToken(user);
 
             // Crear respuesta
             JwtResponse jwtResponse = new JwtResponse(
@@ -120,6 +127,8 @@ public class AuthController {
 
             return ResponseEntity.ok(ApiResponse.success("Usuario registrado exitosamente", newUser));
 
+        } catch (PasswordHashingRejectedException e) {
+            throw e;
         } catch (RuntimeException e) {
             throw new RuntimeException("Error al registrar usuario: " + e.getMessage());
         }
@@ -155,26 +164,63 @@ public class AuthController {
     @GetMapping("/me")
     @Operation(summary = "Información del usuario actual",
                description = "Retorna información del usuario autenticado")
-    public ResponseEntity<ApiResponse<User>> getCurrentUser(@RequestHeader("Authorization") String token) {
-        try {
-            if (token != null && token.startsWith("Bearer ")) {
-                String jwtToken = token.substring(7);
-                String username = jwtUtil.extractUsername(jwtToken);
-
-                User user = userService.getUserByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+    public ResponseEntity<ApiResponse<User>> getCurrentUser(@Parameter(hidden = true) @CurrentUser User user) {
+        if (user == null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Token requerido"));
+        }
 
-                // Remover password de la respuesta
-                user.setPassword(null);
+        // Remover password de la respuesta
+        user.setPassword(null);
 
-                return ResponseEntity.ok(ApiResponse.success("Información del usuario", user));
-            }
+        return ResponseEntity.ok(ApiResponse.success("Información del usuario", user));
+    }
 
+    /**
+     * Endpoint para cerrar sesión (revoca el token actual)
+     */
+    @PostMapping("/logout")
+    @Operation(summary = "Cerrar sesión",
+               description = "Revoca el token JWT con el que se realiza la petición")
+    public ResponseEntity<ApiResponse<String>> logout() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getCredentials() instanceof VerifiedToken token)) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Token requerido"));
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Error al obtener información del usuario");
+        tokenRevocationService.revoke(token);
+        return ResponseEntity.ok(ApiResponse.success("Sesión cerrada exitosamente", null));
+    }
+
+    /**
+     * Endpoint para revocar un token arbitrario (solo administradores)
+     */
+    @PostMapping("/revoke")
+    @Operation(summary = "Revocar token",
+               description = "Revoca un token JWT hasta su expiración (solo administradores)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> revokeToken(@Valid @RequestBody RevokeTokenRequest request) {
+        VerifiedToken token;
+        try {
+            token = verifiedTokenCache.verify(request.getToken());
+        } catch (JwtException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Token inválido"));
         }
+
+        tokenRevocationService.revoke(token);
+        return ResponseEntity.ok(ApiResponse.success("Token revocado exitosamente", null));
+    }
+
+    /**
+     * Endpoint JWKS con las claves públicas vigentes (modo ES256)
+     * Permite que otros servicios verifiquen los tokens localmente
+     */
+    @GetMapping("/.well-known/jwks.json")
+    @Operation(summary = "Claves públicas JWKS",
+               description = "Retorna las claves públicas de firma en formato JWKS (vacío en modo HS256)")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(jwtKeyRing.toJwks());
     }
 
     /**
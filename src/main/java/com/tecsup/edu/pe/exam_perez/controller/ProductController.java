@@ -1,7 +1,16 @@
 package com.tecsup.edu.pe.exam_perez.controller;
 
-import com.tecsup.edu.pe.exam_perez.config.JwtUtil;
+import com.tecsup.edu.pe.exam_perez.config.CurrentUser;
+import com.tecsup.edu.pe.exam_perez.config.UserPrincipal;
 import com.tecsup.edu.pe.exam_perez.dto.ApiResponse;
+import com.tecsup.edu.pe.exam_perez.dto.CursorPage;
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.dto.ProductFacets;
+import com.tecsup.edu.pe.exam_perez.dto.ProductFilter;
+import com.tecsup.edu.pe.exam_perez.dto.ProductQueryResult;
+import com.tecsup.edu.pe.exam_perez.dto.ProductSuggestion;
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
+import com.tecsup.edu.pe.exam_perez.dto.StockBatchRequest;
 import com.tecsup.edu.pe.exam_perez.entity.Product;
 import com.tecsup.edu.pe.exam_perez.entity.User;
 import com.tecsup.edu.pe.exam_perez.service.ProductService;
@@ -21,6 +30,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Controlador REST para gestión de productos
@@ -38,15 +49,12 @@ public class ProductController {
     @Autowired
     private UserService userService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     /**
      * Obtener todos los productos (solo usuarios autenticados)
      */
     @GetMapping
     @Operation(summary = "Obtener todos los productos",
-               description = "Retorna la lista completa de productos activos",
+               description = "Retorna una página de productos activos; usar nextCursor para la siguiente",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(
@@ -57,9 +65,13 @@ public class ProductController {
             description = "No autorizado")
     })
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Product>>> getAllProducts() {
-        List<Product> products = productService.getActiveProducts();
-        return ResponseEntity.ok(ApiResponse.success("Productos obtenidos exitosamente", products));
+    public ResponseEntity<ApiResponse<List<ProductSummary>>> getAllProducts(
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
+
+        CursorPage<ProductSummary> page = productService.getActiveProductsPage(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Productos obtenidos exitosamente",
+                page.getItems(), page.getNextCursor()));
     }
 
     /**
@@ -70,10 +82,10 @@ public class ProductController {
                description = "Retorna un producto específico por su ID",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Product>> getProductById(
+    public ResponseEntity<ApiResponse<ProductDetail>> getProductById(
             @Parameter(description = "ID del producto") @PathVariable Long id) {
 
-        Product product = productService.getProductById(id)
+        ProductDetail product = productService.getProductById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
 
         return ResponseEntity.ok(ApiResponse.success("Producto encontrado", product));
@@ -100,15 +112,12 @@ public class ProductController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Product>> createProduct(
             @Valid @RequestBody Product product,
-            @RequestHeader("Authorization") String token) {
+            @Parameter(hidden = true) @CurrentUser UserPrincipal currentUser) {
 
-        // Obtener usuario que crea el producto
-        String jwtToken = token.substring(7);
-        String username = jwtUtil.extractUsername(jwtToken);
-        User currentUser = userService.getUserByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        // Referencia al usuario que crea el producto (solo se usa como clave foránea)
+        User createdBy = userService.getUserReference(currentUser.getUserId());
 
-        Product newProduct = productService.createProduct(product, currentUser);
+        Product newProduct = productService.createProduct(product, createdBy);
         return ResponseEntity.ok(ApiResponse.success("Producto creado exitosamente", newProduct));
     }
 
@@ -148,14 +157,56 @@ public class ProductController {
      */
     @GetMapping("/search")
     @Operation(summary = "Buscar productos",
-               description = "Busca productos por nombre o descripción",
+               description = "Busca productos activos que contengan todos los términos en nombre, marca o descripción, ordenados por relevancia. Con fuzzy=true tolera errores de tipeo",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ProductSummary>>> searchProducts(
+            @Parameter(description = "Término de búsqueda") @RequestParam String query,
+            @Parameter(description = "Búsqueda tolerante a errores de tipeo") @RequestParam(defaultValue = "false") boolean fuzzy,
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
+
+        CursorPage<ProductSummary> page = productService.searchProductsPage(query, fuzzy, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Búsqueda completada",
+                page.getItems(), page.getNextCursor()));
+    }
+
+    /**
+     * Consulta facetada con filtros combinables
+     */
+    @GetMapping("/query")
+    @Operation(summary = "Consultar productos con filtros combinados",
+               description = "Combina categoría, marca, rango de precio y stock en una sola consulta y retorna conteos por faceta",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ProductQueryResult>> queryProducts(
+            @Parameter(description = "Categorías (una o varias)") @RequestParam(required = false) List<String> category,
+            @Parameter(description = "Marcas (una o varias)") @RequestParam(required = false) List<String> brand,
+            @Parameter(description = "Precio mínimo") @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Precio máximo") @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Solo productos con stock") @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
+
+        ProductFilter filter = new ProductFilter(category, brand, minPrice, maxPrice, inStock);
+        ProductQueryResult result = productService.queryProducts(filter, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Consulta completada", result, result.nextCursor()));
+    }
+
+    /**
+     * Autocompletado por prefijo
+     */
+    @GetMapping("/suggest")
+    @Operation(summary = "Sugerencias de autocompletado",
+               description = "Retorna nombres de producto, marcas y categorías que empiezan con el prefijo, ordenados por stock",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Product>>> searchProducts(
-            @Parameter(description = "Término de búsqueda") @RequestParam String query) {
+    public ResponseEntity<ApiResponse<List<ProductSuggestion>>> suggestProducts(
+            @Parameter(description = "Prefijo escrito por el usuario") @RequestParam String prefix,
+            @Parameter(description = "Cantidad máxima de sugerencias") @RequestParam(required = false) Integer limit) {
 
-        List<Product> products = productService.searchProducts(query);
-        return ResponseEntity.ok(ApiResponse.success("Búsqueda completada", products));
+        List<ProductSuggestion> suggestions = productService.suggest(prefix, limit);
+        return ResponseEntity.ok(ApiResponse.success("Sugerencias obtenidas", suggestions));
     }
 
     /**
@@ -166,11 +217,14 @@ public class ProductController {
                description = "Retorna productos de una categoría específica",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsByCategory(
-            @Parameter(description = "Nombre de la categoría") @PathVariable String category) {
+    public ResponseEntity<ApiResponse<List<ProductSummary>>> getProductsByCategory(
+            @Parameter(description = "Nombre de la categoría") @PathVariable String category,
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
 
-        List<Product> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(ApiResponse.success("Productos por categoría obtenidos", products));
+        CursorPage<ProductSummary> page = productService.getProductsByCategoryPage(category, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Productos por categoría obtenidos",
+                page.getItems(), page.getNextCursor()));
     }
 
     /**
@@ -181,12 +235,15 @@ public class ProductController {
                description = "Retorna productos dentro de un rango de precios",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsByPriceRange(
+    public ResponseEntity<ApiResponse<List<ProductSummary>>> getProductsByPriceRange(
             @Parameter(description = "Precio mínimo") @RequestParam BigDecimal minPrice,
-            @Parameter(description = "Precio máximo") @RequestParam BigDecimal maxPrice) {
+            @Parameter(description = "Precio máximo") @RequestParam BigDecimal maxPrice,
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
 
-        List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice);
-        return ResponseEntity.ok(ApiResponse.success("Productos en rango de precio obtenidos", products));
+        CursorPage<ProductSummary> page = productService.getProductsByPriceRangePage(minPrice, maxPrice, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Productos en rango de precio obtenidos",
+                page.getItems(), page.getNextCursor()));
     }
 
     /**
@@ -202,6 +259,41 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Categorías obtenidas", categories));
     }
 
+    /**
+     * Obtener categorías y marcas con su cantidad de productos activos
+     */
+    @GetMapping("/facets")
+    @Operation(summary = "Obtener facetas del catálogo",
+               description = "Retorna la cantidad de productos activos por categoría y por marca",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ProductFacets>> getFacets() {
+        ProductFacets facets = productService.getFacets();
+        return ResponseEntity.ok(ApiResponse.success("Facetas obtenidas", facets));
+    }
+
+    /**
+     * Descontar stock de varios productos en una sola transacción (checkout)
+     */
+    @PostMapping("/stock/reserve-batch")
+    @Operation(summary = "Descontar stock en lote",
+               description = "Descuenta el stock de varios productos en una sola transacción; si alguno no tiene stock suficiente no se descuenta ninguno",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ProductDetail>>> reserveStockBatch(
+            @Valid @RequestBody StockBatchRequest request) {
+
+        // Las líneas repetidas del mismo producto se suman
+        Map<Long, Integer> quantities = request.items().stream()
+                .collect(Collectors.toMap(StockBatchRequest.Item::productId,
+                        StockBatchRequest.Item::quantity, Integer::sum));
+
+        List<ProductDetail> products = productService.reduceStockBatch(quantities).stream()
+                .map(ProductDetail::from)
+                .toList();
+        return ResponseEntity.ok(ApiResponse.success("Stock descontado exitosamente", products));
+    }
+
     /**
      * Obtener productos con stock bajo (solo administradores)
      */
@@ -210,9 +302,13 @@ public class ProductController {
                description = "Retorna productos con stock menor a 10 unidades (solo administradores)",
                security = @SecurityRequirement(name = "Bearer Authentication"))
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsWithLowStock() {
-        List<Product> products = productService.getProductsWithLowStock();
-        return ResponseEntity.ok(ApiResponse.success("Productos con stock bajo obtenidos", products));
+    public ResponseEntity<ApiResponse<List<ProductDetail>>> getProductsWithLowStock(
+            @Parameter(description = "Cursor de la página siguiente") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(required = false) Integer size) {
+
+        CursorPage<ProductDetail> page = productService.getProductsWithLowStockPage(cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Productos con stock bajo obtenidos",
+                page.getItems(), page.getNextCursor()));
     }
 
     /**
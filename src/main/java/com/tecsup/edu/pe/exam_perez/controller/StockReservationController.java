@@ -0,0 +1,83 @@
+package com.tecsup.edu.pe.exam_perez.controller;
+
+import com.tecsup.edu.pe.exam_perez.config.CurrentUser;
+import com.tecsup.edu.pe.exam_perez.config.UserPrincipal;
+import com.tecsup.edu.pe.exam_perez.dto.ApiResponse;
+import com.tecsup.edu.pe.exam_perez.dto.StockHoldRequest;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import com.tecsup.edu.pe.exam_perez.service.StockReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Controlador de reservas de stock para carritos
+ * Apartar al agregar al carrito, confirmar al pagar y liberar al quitarlo;
+ * las reservas no confirmadas se liberan solas al vencer
+ */
+@RestController
+@RequestMapping("/api/products/stock/reservations")
+@Tag(name = "Reservas de stock", description = "Apartado temporal de stock para carritos de compra")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    /**
+     * Apartar stock de un producto
+     */
+    @PostMapping
+    @Operation(summary = "Apartar stock",
+               description = "Descuenta la cantidad del stock disponible hasta que la reserva se confirme, se libere o venza",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<StockReservation>> hold(
+            @Valid @RequestBody StockHoldRequest request,
+            @Parameter(hidden = true) @CurrentUser UserPrincipal currentUser) {
+
+        StockReservation reservation = reservationService.hold(
+                request.productId(), request.quantity(), currentUser.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("Stock reservado exitosamente", reservation));
+    }
+
+    /**
+     * Confirmar una reserva (pago realizado)
+     */
+    @PostMapping("/{id}/confirm")
+    @Operation(summary = "Confirmar reserva",
+               description = "Confirma una reserva vigente; el stock queda descontado definitivamente",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<StockReservation>> confirm(
+            @Parameter(description = "ID de la reserva") @PathVariable UUID id,
+            @Parameter(hidden = true) @CurrentUser UserPrincipal currentUser) {
+
+        StockReservation reservation = reservationService.confirm(id, currentUser.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("Reserva confirmada exitosamente", reservation));
+    }
+
+    /**
+     * Liberar una reserva devolviendo el stock
+     */
+    @PostMapping("/{id}/release")
+    @Operation(summary = "Liberar reserva",
+               description = "Libera una reserva vigente y devuelve la cantidad al stock del producto",
+               security = @SecurityRequirement(name = "Bearer Authentication"))
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<StockReservation>> release(
+            @Parameter(description = "ID de la reserva") @PathVariable UUID id,
+            @Parameter(hidden = true) @CurrentUser UserPrincipal currentUser) {
+
+        StockReservation reservation = reservationService.release(id, currentUser.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("Reserva liberada exitosamente", reservation));
+    }
+}
@@ -1,5 +1,7 @@
 package com.tecsup.edu.pe.exam_perez.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.LocalDateTime;
 
 /**
@@ -12,6 +14,10 @@ public class ApiResponse<T> {
     private T data;
     private LocalDateTime timestamp;
 
+    // Cursor opaco para pedir la siguiente página (solo en listados paginados)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     // Constructores
     public ApiResponse() {
         this.timestamp = LocalDateTime.now();
@@ -33,6 +39,12 @@ public class ApiResponse<T> {
         return new ApiResponse<>(true, message, data);
     }
 
+    public static <T> ApiResponse<T> success(String message, T data, String nextCursor) {
+        ApiResponse<T> response = new ApiResponse<>(true, message, data);
+        response.setNextCursor(nextCursor);
+        return response;
+    }
+
     public static <T> ApiResponse<T> success(String message) {
         return new ApiResponse<>(true, message);
     }
@@ -77,4 +89,12 @@ public class ApiResponse<T> {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
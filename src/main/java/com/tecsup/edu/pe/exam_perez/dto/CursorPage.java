@@ -0,0 +1,58 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor (keyset)
+ * El cursor es opaco para el cliente: codifica la clave de orden y el ID del último elemento
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Codificar la posición (clave de orden, ID) como cursor opaco
+     */
+    public static String encodeCursor(String sortKey, Long id) {
+        String raw = (sortKey != null ? sortKey : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodificar un cursor; retorna [clave de orden, ID] o lanza IllegalArgumentException
+     */
+    public static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            String sortKey = raw.substring(0, separator);
+            Long.parseLong(raw.substring(separator + 1));
+            return new String[] { sortKey, raw.substring(separator + 1) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
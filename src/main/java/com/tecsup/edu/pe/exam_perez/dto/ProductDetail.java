@@ -0,0 +1,50 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Modelo de lectura inmutable de un producto (detalle)
+ * Se puede compartir entre hilos y guardar en caché sin riesgo de modificar la entidad
+ */
+public record ProductDetail(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stock,
+        String category,
+        String brand,
+        Boolean active,
+        String imageUrl,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version,
+        boolean inStock) {
+
+    public static ProductDetail from(Product product) {
+        return new ProductDetail(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getStock(),
+                product.getCategory(),
+                product.getBrand(),
+                product.getActive(),
+                product.getImageUrl(),
+                product.getCreatedAt(),
+                product.getUpdatedAt(),
+                product.getVersion(),
+                product.isInStock());
+    }
+
+    /**
+     * Proyección compacta usada en los listados
+     */
+    public ProductSummary toSummary() {
+        return new ProductSummary(id, name, price, stock, category, brand);
+    }
+}
@@ -0,0 +1,10 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import java.util.Map;
+
+/**
+ * Conteo de productos activos por categoría y por marca
+ * Los mapas son inmutables y están ordenados alfabéticamente
+ */
+public record ProductFacets(Map<String, Long> categories, Map<String, Long> brands, long totalActive) {
+}
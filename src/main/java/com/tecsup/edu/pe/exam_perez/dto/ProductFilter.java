@@ -0,0 +1,14 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Filtros combinables de la consulta de productos; los valores nulos o vacíos no filtran
+ */
+public record ProductFilter(List<String> categories,
+                            List<String> brands,
+                            BigDecimal minPrice,
+                            BigDecimal maxPrice,
+                            Boolean inStock) {
+}
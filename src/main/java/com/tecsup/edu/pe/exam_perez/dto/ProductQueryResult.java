@@ -0,0 +1,18 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la consulta facetada: página de productos y conteos por faceta
+ * Cada faceta se cuenta con todos los filtros excepto el suyo, para mostrar las alternativas
+ * El cursor de la página siguiente viaja en ApiResponse.nextCursor
+ */
+public record ProductQueryResult(List<ProductSummary> items,
+                                 Map<String, Long> categories,
+                                 Map<String, Long> brands,
+                                 Map<String, Long> priceRanges,
+                                 @JsonIgnore String nextCursor) {
+}
@@ -0,0 +1,15 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Sugerencia de autocompletado: nombre de producto, marca o categoría
+ * productId solo se informa en sugerencias de tipo PRODUCT
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductSuggestion(String text, Type type, Long productId, long score) {
+
+    public enum Type {
+        PRODUCT, BRAND, CATEGORY
+    }
+}
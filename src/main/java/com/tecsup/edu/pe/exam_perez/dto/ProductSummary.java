@@ -0,0 +1,16 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección compacta de producto para listados
+ * Se llena directamente desde la consulta (sin hidratar la entidad ni su relación createdBy)
+ */
+public record ProductSummary(
+        Long id,
+        String name,
+        BigDecimal price,
+        Integer stock,
+        String category,
+        String brand) {
+}
@@ -0,0 +1,28 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * DTO para revocar un token JWT
+ */
+public class RevokeTokenRequest {
+
+    @NotBlank(message = "El token es obligatorio")
+    private String token;
+
+    // Constructores
+    public RevokeTokenRequest() {}
+
+    public RevokeTokenRequest(String token) {
+        this.token = token;
+    }
+
+    // Getters y Setters
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.List;
+
+/**
+ * DTO para descontar el stock de varios productos en una sola operación (checkout)
+ */
+public record StockBatchRequest(
+        @NotEmpty(message = "Debe indicar al menos un producto")
+        @Valid
+        List<Item> items) {
+
+    /**
+     * Línea del lote: producto y cantidad a descontar
+     */
+    public record Item(
+            @NotNull(message = "El ID del producto es obligatorio")
+            Long productId,
+
+            @NotNull(message = "La cantidad es obligatoria")
+            @Positive(message = "La cantidad debe ser mayor a 0")
+            Integer quantity) {
+    }
+}
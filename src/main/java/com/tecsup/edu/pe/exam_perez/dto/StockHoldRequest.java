@@ -0,0 +1,16 @@
+package com.tecsup.edu.pe.exam_perez.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * DTO para apartar stock de un producto en el carrito
+ */
+public record StockHoldRequest(
+        @NotNull(message = "El ID del producto es obligatorio")
+        Long productId,
+
+        @NotNull(message = "La cantidad es obligatoria")
+        @Positive(message = "La cantidad debe ser mayor a 0")
+        Integer quantity) {
+}
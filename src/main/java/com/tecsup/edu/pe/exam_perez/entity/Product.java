@@ -2,6 +2,9 @@ package com.tecsup.edu.pe.exam_perez.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -11,7 +14,12 @@ import java.time.LocalDateTime;
  * Incluye validaciones completas y relaciones
  */
 @Entity
-@Table(name = "products")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_category_id", columnList = "category, id"),
+    @Index(name = "idx_products_price_id", columnList = "price, id")
+})
 public class Product {
 
     @Id
@@ -63,6 +71,12 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista: una modificación concurrente hace fallar el UPDATE en lugar de sobrescribirse
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     // Constructores
     public Product() {
     }
@@ -176,6 +190,14 @@ public class Product {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
@@ -0,0 +1,66 @@
+package com.tecsup.edu.pe.exam_perez.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad StockLedgerCheckpoint: última secuencia del diario de stock aplicada en la BD
+ * Se guarda en la misma transacción que los deltas, así la recuperación no aplica
+ * dos veces un movimiento ni omite uno
+ */
+@Entity
+@Table(name = "stock_ledger_checkpoints")
+public class StockLedgerCheckpoint {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public StockLedgerCheckpoint() {
+    }
+
+    public StockLedgerCheckpoint(String name, Long lastSequence) {
+        this.name = name;
+        this.lastSequence = lastSequence;
+    }
+
+    // Métodos de JPA Lifecycle
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -13,6 +17,8 @@ import java.time.LocalDateTime;
  * Incluye validaciones y relaciones necesarias
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "users")
 public class User {
 
@@ -53,6 +59,13 @@ public class User {
     @Column(nullable = false)
     private Boolean active = true;
 
+    // Versión de credenciales: se incrementa al cambiar contraseña, rol o estado
+    // e invalida los tokens JWT emitidos con una versión anterior
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private Integer tokenVersion = 0;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -153,6 +166,14 @@ public class User {
         this.active = active;
     }
 
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -174,6 +195,11 @@ public class User {
         return firstName + " " + lastName;
     }
 
+    // Invalidar los tokens emitidos hasta ahora
+    public void incrementTokenVersion() {
+        this.tokenVersion = (tokenVersion == null ? 0 : tokenVersion) + 1;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -1,6 +1,8 @@
 package com.tecsup.edu.pe.exam_perez.exception;
 
 import com.tecsup.edu.pe.exam_perez.dto.ApiResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -81,6 +83,33 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Manejo de saturación del pool de hashing de contraseñas
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handlePasswordHashingRejectedException(
+            PasswordHashingRejectedException ex) {
+
+        ApiResponse<Object> response = ApiResponse.error(ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    /**
+     * Manejo de conflictos de bloqueo optimista (el recurso cambió desde que se leyó)
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse<Object>> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex) {
+
+        ApiResponse<Object> response = ApiResponse.error(
+            "El recurso fue modificado por otra operación. Vuelva a consultarlo e intente nuevamente");
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
     /**
      * Manejo de errores de runtime personalizados
      */
@@ -0,0 +1,19 @@
+package com.tecsup.edu.pe.exam_perez.exception;
+
+/**
+ * Excepción lanzada cuando el pool de hashing de contraseñas está saturado
+ * Se traduce a HTTP 503 con cabecera Retry-After
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
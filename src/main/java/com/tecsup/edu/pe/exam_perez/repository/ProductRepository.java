@@ -1,20 +1,34 @@
 package com.tecsup.edu.pe.exam_perez.repository;
 
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
 import com.tecsup.edu.pe.exam_perez.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para la entidad Product
  * Incluye métodos personalizados para consultas específicas de productos
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    /**
+     * Región del caché de consultas de Hibernate para los listados de productos
+     * Se invalida automáticamente cuando cambia cualquier fila de products
+     */
+    String QUERY_CACHE_REGION = "product-queries";
 
     /**
      * Buscar productos activos
@@ -27,8 +41,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategory(String category);
 
     /**
-     * Buscar productos por categoría y activos
+     * Buscar productos por categoría y activos (caché de consultas)
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     List<Product> findByCategoryAndActiveTrue(String category);
 
     /**
@@ -52,16 +70,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContainingIgnoreCase(String name);
 
     /**
-     * Buscar productos por nombre o descripción
-     */
-    @Query("SELECT p FROM Product p WHERE " +
-           "LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Product> findByNameOrDescriptionContaining(@Param("searchTerm") String searchTerm);
-
-    /**
-     * Buscar productos activos con stock disponible
+     * Buscar productos activos con stock disponible (caché de consultas)
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.stock > 0")
     List<Product> findActiveProductsWithStock();
 
@@ -72,8 +86,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategoryWithStock(@Param("category") String category);
 
     /**
-     * Obtener todas las categorías únicas
+     * Obtener todas las categorías únicas (caché de consultas)
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.active = true")
     List<String> findDistinctCategories();
 
@@ -98,4 +116,54 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     @Query("SELECT p FROM Product p WHERE p.stock < 10 AND p.active = true")
     List<Product> findProductsWithLowStock();
+
+    /**
+     * Leer el estado actual desde la base de datos sin pasar por el caché de segundo nivel
+     * Necesario tras los UPDATE de stock por JDBC: otra transacción pudo volver a cachear la fila anterior
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findCurrentById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findCurrentByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Paginación por cursor (keyset): se busca a partir de (clave de orden, id) en lugar de OFFSET
+    // Los listados se proyectan a ProductSummary: solo las columnas necesarias, sin entidades gestionadas
+
+    String SUMMARY_SELECT = "SELECT new com.tecsup.edu.pe.exam_perez.dto.ProductSummary(" +
+            "p.id, p.name, p.price, p.stock, p.category, p.brand) FROM Product p ";
+
+    /**
+     * Página de productos activos ordenados por ID
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findActivePage(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Página de productos activos de una categoría ordenados por ID
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.category = :category AND p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<ProductSummary> findByCategoryPage(@Param("category") String category,
+                                            @Param("afterId") Long afterId,
+                                            Limit limit);
+
+    /**
+     * Página de productos en rango de precios ordenados por (precio, ID)
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice AND " +
+           "(p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId)) " +
+           "ORDER BY p.price, p.id")
+    List<ProductSummary> findByPriceRangePage(@Param("minPrice") BigDecimal minPrice,
+                                              @Param("maxPrice") BigDecimal maxPrice,
+                                              @Param("afterPrice") BigDecimal afterPrice,
+                                              @Param("afterId") Long afterId,
+                                              Limit limit);
+
+    /**
+     * Página de productos con stock bajo ordenados por ID
+     */
+    @Query("SELECT p FROM Product p WHERE p.stock < 10 AND p.active = true AND p.id > :afterId ORDER BY p.id")
+    List<Product> findLowStockPage(@Param("afterId") Long afterId, Limit limit);
 }
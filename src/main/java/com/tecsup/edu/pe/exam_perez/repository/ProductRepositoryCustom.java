@@ -0,0 +1,64 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas dinámicas de productos construidas con Criteria API
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Página de productos que cumplen el filtro, ordenados por ID, proyectados a ProductSummary
+     */
+    List<ProductSummary> findSummaries(Specification<Product> spec, int limit);
+
+    /**
+     * Conteos de las facetas de una consulta en un único viaje a la BD (UNION ALL de una rama
+     * por categoría, una por marca y una por cada rango de precio); cada faceta recibe su propio
+     * filtro porque ignora la selección que ella misma ofrece.
+     * Los límites dividen los precios en límites.size() + 1 rangos.
+     */
+    FacetCounts countFacets(Specification<Product> categorySpec, Specification<Product> brandSpec,
+                            Specification<Product> priceSpec, List<BigDecimal> bounds);
+
+    /**
+     * Descontar stock de forma atómica: solo se actualiza si hay stock suficiente
+     * Retorna la cantidad de filas afectadas (0 = stock insuficiente o producto inexistente)
+     * Incrementa la versión para que las modificaciones optimistas concurrentes lo detecten
+     */
+    int decrementStock(Long id, int quantity, LocalDateTime now);
+
+    /**
+     * Sumar un delta al stock de forma atómica (devoluciones y escritura diferida del stock en memoria)
+     */
+    int adjustStock(Long id, int delta, LocalDateTime now);
+
+    /**
+     * Descontar stock de varios productos con un único lote JDBC de UPDATE condicionales
+     * Las sentencias se envían en el orden de iteración del mapa; retorna las filas afectadas
+     * por cada una (0 = stock insuficiente o producto inexistente)
+     * Igual que decrementStock, quita del caché de segundo nivel solo estos productos (antes y al
+     * terminar la transacción) y desvincula sus instancias gestionadas
+     */
+    int[] decrementStockBatch(Map<Long, Integer> quantities, LocalDateTime now);
+
+    /**
+     * Quitar productos del caché de segundo nivel junto con las consultas cacheadas de productos
+     * Necesario tras modificar filas con JDBC fuera de los métodos de stock, que ya lo hacen
+     */
+    void evictFromSecondLevelCache(Collection<Long> ids);
+
+    /**
+     * Conteos por categoría y por marca (ordenados por valor) y por rango de precio
+     */
+    record FacetCounts(Map<String, Long> categories, Map<String, Long> brands, List<Long> priceBuckets) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Implementación de ProductRepositoryCustom
+ */
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock = stock - ?, version = version + 1, updated_at = ? " +
+            "WHERE id = ? AND stock >= ?";
+
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE products SET stock = stock + ?, version = version + 1, updated_at = ? WHERE id = ?";
+
+    private static final String FACET_CATEGORY = "category";
+    private static final String FACET_BRAND = "brand";
+    private static final String FACET_PRICE = "price";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSummary> findSummaries(Specification<Product> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummary> query = cb.createQuery(ProductSummary.class);
+        Root<Product> root = query.from(Product.class);
+
+        query.select(cb.construct(ProductSummary.class,
+                root.get("id"), root.get("name"), root.get("price"),
+                root.get("stock"), root.get("category"), root.get("brand")));
+        applyFilter(spec, root, query, cb);
+        query.orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public FacetCounts countFacets(Specification<Product> categorySpec, Specification<Product> brandSpec,
+                                   Specification<Product> priceSpec, List<BigDecimal> bounds) {
+        HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+
+        // Todas las ramas devuelven (faceta, valor, cantidad); en los rangos el valor es su posición
+        List<CriteriaQuery<Tuple>> branches = new ArrayList<>();
+        branches.add(countGroupedBy(cb, categorySpec, FACET_CATEGORY, "category"));
+        branches.add(countGroupedBy(cb, brandSpec, FACET_BRAND, "brand"));
+        for (int i = 0; i <= bounds.size(); i++) {
+            branches.add(countInPriceBucket(cb, priceSpec, bounds, i));
+        }
+        JpaCriteriaQuery<Tuple> union = cb.unionAll(branches.get(0),
+                branches.subList(1, branches.size()).toArray(new CriteriaQuery<?>[0]));
+
+        Map<String, Long> categories = new TreeMap<>();
+        Map<String, Long> brands = new TreeMap<>();
+        Long[] buckets = new Long[bounds.size() + 1];
+        Arrays.fill(buckets, 0L);
+        for (Tuple tuple : entityManager.createQuery(union).getResultList()) {
+            String facet = tuple.get(0, String.class);
+            String value = tuple.get(1, String.class);
+            long count = tuple.get(2, Number.class).longValue();
+            if (value == null) {
+                continue;
+            }
+            switch (facet) {
+                case FACET_CATEGORY -> categories.put(value, count);
+                case FACET_BRAND -> brands.put(value, count);
+                default -> buckets[Integer.parseInt(value)] = count;
+            }
+        }
+        return new FacetCounts(categories, brands, Arrays.asList(buckets));
+    }
+
+    private static CriteriaQuery<Tuple> countGroupedBy(HibernateCriteriaBuilder cb, Specification<Product> spec,
+                                                       String facet, String attribute) {
+        JpaCriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Path<String> key = root.get(attribute);
+
+        query.multiselect(cb.literal(facet), key, cb.count(root));
+        applyFilter(spec, root, query, cb);
+        query.groupBy(key);
+        return query;
+    }
+
+    private static CriteriaQuery<Tuple> countInPriceBucket(HibernateCriteriaBuilder cb, Specification<Product> spec,
+                                                           List<BigDecimal> bounds, int bucket) {
+        JpaCriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Path<BigDecimal> price = root.get("price");
+
+        List<Predicate> conditions = new ArrayList<>();
+        Predicate filter = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (filter != null) {
+            conditions.add(filter);
+        }
+        if (bucket > 0) {
+            conditions.add(cb.greaterThanOrEqualTo(price, bounds.get(bucket - 1)));
+        }
+        if (bucket < bounds.size()) {
+            conditions.add(cb.lessThan(price, bounds.get(bucket)));
+        }
+        query.multiselect(cb.literal(FACET_PRICE), cb.literal(Integer.toString(bucket)), cb.count(root));
+        query.where(conditions.toArray(new Predicate[0]));
+        return query;
+    }
+
+    @Override
+    public int decrementStock(Long id, int quantity, LocalDateTime now) {
+        return updateStock(DECREMENT_STOCK_SQL, Map.of(id, quantity), now, true)[0];
+    }
+
+    @Override
+    public int adjustStock(Long id, int delta, LocalDateTime now) {
+        return updateStock(ADJUST_STOCK_SQL, Map.of(id, delta), now, false)[0];
+    }
+
+    @Override
+    public int[] decrementStockBatch(Map<Long, Integer> quantities, LocalDateTime now) {
+        return updateStock(DECREMENT_STOCK_SQL, quantities, now, true);
+    }
+
+    /**
+     * UPDATE de stock por JDBC sobre la conexión de la transacción en curso (mismo commit/rollback)
+     * Un UPDATE masivo de JPQL o una consulta nativa sincronizada con Product harían que Hibernate
+     * vacíe toda la región products del caché de segundo nivel; aquí solo se quitan estos productos,
+     * antes de escribir y otra vez al terminar la transacción (una lectura concurrente pudo volver a
+     * cachear la fila anterior mientras tanto). Tras un commit la segunda eliminación ocurre en
+     * afterCommit, antes de que ProductService invalide ProductCache (que se registra después):
+     * así ProductCache no se recarga desde una entrada anterior del segundo nivel.
+     * Las instancias gestionadas de estos productos se desvinculan para que la siguiente lectura
+     * traiga el estado nuevo.
+     * Los parámetros de cada sentencia son (cantidad, fecha, id[, cantidad si es condicional]).
+     */
+    private int[] updateStock(String sql, Map<Long, Integer> amounts, LocalDateTime now, boolean conditional) {
+        Set<Long> ids = amounts.keySet();
+        entityManager.flush();
+        detachManaged(ids);
+        evictFromSecondLevelCache(ids);
+        evictAfterCompletion(ids);
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                Timestamp updatedAt = Timestamp.valueOf(now);
+                for (Map.Entry<Long, Integer> entry : amounts.entrySet()) {
+                    statement.setInt(1, entry.getValue());
+                    statement.setTimestamp(2, updatedAt);
+                    statement.setLong(3, entry.getKey());
+                    if (conditional) {
+                        statement.setInt(4, entry.getValue());
+                    }
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    private void detachManaged(Collection<Long> ids) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Product.class);
+        for (Long id : ids) {
+            Object managed = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                entityManager.detach(managed);
+            }
+        }
+    }
+
+    private void evictAfterCompletion(Collection<Long> ids) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> evicted = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictFromSecondLevelCache(evicted);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evictFromSecondLevelCache(evicted);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void evictFromSecondLevelCache(Collection<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        for (Long id : ids) {
+            cache.evict(Product.class, id);
+        }
+        entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getCache().evictQueryRegion(ProductRepository.QUERY_CACHE_REGION);
+    }
+
+    private static void applyFilter(Specification<Product> spec, Root<Product> root,
+                                    CriteriaQuery<?> query, CriteriaBuilder cb) {
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Escrituras JDBC para reconstruir las tablas products y stock_reservations desde el diario de productos
+ * Solo las usa ProductJournal al arrancar; el resto de la aplicación pasa por los repositorios JPA.
+ */
+@Repository
+public class ProductSnapshotRestorer {
+
+    private static final String RESTORE_UPDATE_SQL =
+            "UPDATE products SET name = ?, description = ?, price = ?, stock = ?, category = ?, brand = ?, " +
+            "active = ?, image_url = ?, created_at = ?, updated_at = ?, version = ? WHERE id = ?";
+
+    private static final String RESTORE_INSERT_SQL =
+            "INSERT INTO products (name, description, price, stock, category, brand, " +
+            "active, image_url, created_at, updated_at, version, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String RESERVATION_UPDATE_SQL =
+            "UPDATE stock_reservations SET product_id = ?, quantity = ?, username = ?, status = ?, expires_at = ?, " +
+            "created_at = ?, updated_at = ?, version = ? WHERE id = ?";
+
+    private static final String RESERVATION_INSERT_SQL =
+            "INSERT INTO stock_reservations (product_id, quantity, username, status, expires_at, " +
+            "created_at, updated_at, version, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Dejar las filas de products exactamente como en las instantáneas (ID y versión incluidos)
+     * Actualiza las existentes e inserta las que falten en lotes JDBC, dentro de la transacción actual.
+     * No toca created_by: el usuario creador no forma parte de la instantánea.
+     */
+    public void restoreSnapshots(Collection<ProductDetail> products) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            List<ProductDetail> missing = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(RESTORE_UPDATE_SQL)) {
+                List<ProductDetail> pending = new ArrayList<>(products);
+                int[] updated = executeBatch(statement, pending);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        missing.add(pending.get(i));
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(RESTORE_INSERT_SQL)) {
+                    executeBatch(statement, missing);
+                }
+            }
+        });
+    }
+
+    /**
+     * Dejar las reservas exactamente como en el diario (ID y versión incluidos), dentro de la transacción actual
+     */
+    public void restoreReservations(Collection<StockReservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            List<StockReservation> missing = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(RESERVATION_UPDATE_SQL)) {
+                List<StockReservation> pending = new ArrayList<>(reservations);
+                int[] updated = executeReservationBatch(statement, pending);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        missing.add(pending.get(i));
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(RESERVATION_INSERT_SQL)) {
+                    executeReservationBatch(statement, missing);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mover la identidad después del mayor ID (y al menos a minimumNextId) para que los productos
+     * nuevos no reutilicen IDs restaurados ni eliminados
+     * Es DDL: H2 confirma implícitamente la transacción abierta, así que debe ejecutarse en una
+     * transacción propia, después de confirmar la restauración.
+     */
+    public void restartIdentity(long minimumNextId) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                long next;
+                try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM products")) {
+                    result.next();
+                    next = Math.max(result.getLong(1), minimumNextId);
+                }
+                statement.execute("ALTER TABLE products ALTER COLUMN id RESTART WITH " + next);
+            }
+        });
+    }
+
+    private static int[] executeBatch(PreparedStatement statement, List<ProductDetail> products)
+            throws SQLException {
+        for (ProductDetail product : products) {
+            statement.setString(1, product.name());
+            statement.setString(2, product.description());
+            statement.setBigDecimal(3, product.price());
+            statement.setObject(4, product.stock());
+            statement.setString(5, product.category());
+            statement.setString(6, product.brand());
+            statement.setObject(7, product.active());
+            statement.setString(8, product.imageUrl());
+            statement.setTimestamp(9, timestamp(product.createdAt()));
+            statement.setTimestamp(10, timestamp(product.updatedAt()));
+            statement.setLong(11, product.version());
+            statement.setLong(12, product.id());
+            statement.addBatch();
+        }
+        return statement.executeBatch();
+    }
+
+    private static int[] executeReservationBatch(PreparedStatement statement, List<StockReservation> reservations)
+            throws SQLException {
+        for (StockReservation reservation : reservations) {
+            statement.setLong(1, reservation.getProductId());
+            statement.setInt(2, reservation.getQuantity());
+            statement.setString(3, reservation.getUsername());
+            statement.setString(4, reservation.getStatus().name());
+            statement.setTimestamp(5, Timestamp.valueOf(reservation.getExpiresAt()));
+            statement.setTimestamp(6, timestamp(reservation.getCreatedAt()));
+            statement.setTimestamp(7, timestamp(reservation.getUpdatedAt()));
+            statement.setLong(8, reservation.getVersion());
+            statement.setObject(9, reservation.getId());
+            statement.addBatch();
+        }
+        return statement.executeBatch();
+    }
+
+    private static Timestamp timestamp(LocalDateTime dateTime) {
+        return dateTime != null ? Timestamp.valueOf(dateTime) : null;
+    }
+}
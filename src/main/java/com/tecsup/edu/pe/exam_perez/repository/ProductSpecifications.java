@@ -0,0 +1,61 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Filtros reutilizables de productos para consultas dinámicas (JPA Specifications)
+ * Cada filtro se omite (retorna null) cuando su valor no fue indicado
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> isActive() {
+        return (root, query, cb) -> cb.isTrue(root.get("active"));
+    }
+
+    public static Specification<Product> categoryIn(Collection<String> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("category").in(categories);
+    }
+
+    public static Specification<Product> brandIn(Collection<String> brands) {
+        if (brands == null || brands.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("brand").in(brands);
+    }
+
+    public static Specification<Product> priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (minPrice == null) {
+                return cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+            }
+            if (maxPrice == null) {
+                return cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+            }
+            return cb.between(root.get("price"), minPrice, maxPrice);
+        };
+    }
+
+    public static Specification<Product> inStock(Boolean inStock) {
+        if (!Boolean.TRUE.equals(inStock)) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThan(root.get("stock"), 0);
+    }
+
+    public static Specification<Product> idGreaterThan(Long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+}
@@ -0,0 +1,20 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repositorio para la entidad StockReservation
+ */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID> {
+
+    /**
+     * Reservas en un estado dado (al arrancar se recuperan las vigentes)
+     */
+    List<StockReservation> findByStatus(StockReservation.Status status);
+}
@@ -26,6 +26,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Buscar usuario por username o email en una sola consulta (ambas columnas son únicas)
+     */
+    @Query("SELECT u FROM User u WHERE u.username = :login OR u.email = :login")
+    List<User> findByUsernameOrEmail(@Param("login") String login);
+
     /**
      * Verificar si existe un usuario con el username dado
      */
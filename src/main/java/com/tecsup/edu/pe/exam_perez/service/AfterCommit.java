@@ -0,0 +1,31 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidad para ejecutar acciones solo después de que la transacción actual confirme
+ * Evita que cachés e índices en memoria reflejen cambios que luego se revierten
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Ejecutar la acción tras el commit, o de inmediato si no hay transacción activa
+     */
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,8 +1,15 @@
 package com.tecsup.edu.pe.exam_perez.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tecsup.edu.pe.exam_perez.config.UserPrincipal;
 import com.tecsup.edu.pe.exam_perez.entity.User;
 import com.tecsup.edu.pe.exam_perez.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,57 +17,137 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio personalizado para cargar detalles del usuario
  * Implementa UserDetailsService de Spring Security
+ * Mantiene una caché acotada con TTL (Caffeine) para evitar consultar la tabla users en cada request.
+ * La carga es atómica por username: un evict concurrente espera a que termine y luego la descarta,
+ * así nunca queda en caché un usuario leído antes de una modificación ya confirmada.
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    // Autoridades precalculadas e inmutables por rol
+    private static final Map<User.Role, List<GrantedAuthority>> AUTHORITIES_BY_ROLE = new EnumMap<>(User.Role.class);
+
+    static {
+        AUTHORITIES_BY_ROLE.put(User.Role.ADMIN, List.of(
+                new SimpleGrantedAuthority("ROLE_ADMIN"),
+                new SimpleGrantedAuthority("ADMIN_READ"),
+                new SimpleGrantedAuthority("ADMIN_WRITE"),
+                new SimpleGrantedAuthority("ADMIN_DELETE"),
+                new SimpleGrantedAuthority("USER_READ"),
+                new SimpleGrantedAuthority("USER_WRITE")));
+        AUTHORITIES_BY_ROLE.put(User.Role.USER, List.of(
+                new SimpleGrantedAuthority("ROLE_USER"),
+                new SimpleGrantedAuthority("USER_READ"),
+                new SimpleGrantedAuthority("USER_WRITE")));
+    }
+
+    private final Cache<String, CachedUser> cache;
+    private final boolean cacheEnabled;
+
     @Autowired
     private UserRepository userRepository;
 
+    public CustomUserDetailsService(@Value("${security.user-cache.enabled:true}") boolean cacheEnabled,
+                                    @Value("${security.user-cache.max-size:1000}") long maxSize,
+                                    @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cacheEnabled = cacheEnabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("security.user.cache.hits", cache, c -> c.stats().hitCount()).register(registry);
+        FunctionCounter.builder("security.user.cache.misses", cache, c -> c.stats().missCount()).register(registry);
+        FunctionCounter.builder("security.user.cache.evictions", cache, c -> c.stats().evictionCount())
+                .register(registry);
+        Gauge.builder("security.user.cache.size", cache, Cache::estimatedSize).register(registry);
+        Gauge.builder("security.user.cache.hit.ratio", this, CustomUserDetailsService::getHitRatio).register(registry);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!cacheEnabled) {
+            return toUserDetails(loadFromDatabase(username));
+        }
+        // Los usuarios inexistentes no se guardan: la excepción del loader se propaga
+        return toUserDetails(cache.get(username, this::loadFromDatabase));
+    }
+
+    /**
+     * Quitar un usuario de la caché (llamado por UserService al modificarlo)
+     */
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    /**
+     * Proporción de aciertos de la caché desde el arranque
+     */
+    public double getHitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    /**
+     * Obtener autoridades basadas en el rol del usuario
+     */
+    public static Collection<? extends GrantedAuthority> getAuthorities(User.Role role) {
+        return AUTHORITIES_BY_ROLE.get(role);
+    }
+
+    private CachedUser loadFromDatabase(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new CachedUser(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
-                user.getActive(),
-                true,
-                true,
-                true,
-                getAuthorities(user)
-        );
+                Boolean.TRUE.equals(user.getActive()),
+                user.getRole());
     }
 
     /**
-     * Obtener autoridades basadas en el rol del usuario
+     * Se construye una instancia nueva en cada llamada porque Spring Security
+     * borra la contraseña del principal tras autenticar (eraseCredentials)
      */
-    private Collection<? extends GrantedAuthority> getAuthorities(User user) {
-        List<GrantedAuthority> authorities = new ArrayList<>();
-
-        // Agregar el rol del usuario como autoridad
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
-
-        // Agregar permisos específicos basados en el rol
-        if (user.getRole() == User.Role.ADMIN) {
-            authorities.add(new SimpleGrantedAuthority("ADMIN_READ"));
-            authorities.add(new SimpleGrantedAuthority("ADMIN_WRITE"));
-            authorities.add(new SimpleGrantedAuthority("ADMIN_DELETE"));
-            authorities.add(new SimpleGrantedAuthority("USER_READ"));
-            authorities.add(new SimpleGrantedAuthority("USER_WRITE"));
-        } else if (user.getRole() == User.Role.USER) {
-            authorities.add(new SimpleGrantedAuthority("USER_READ"));
-            authorities.add(new SimpleGrantedAuthority("USER_WRITE"));
-        }
+    private UserDetails toUserDetails(CachedUser cached) {
+        return new UserPrincipal(
+                cached.userId,
+                cached.username,
+                cached.password,
+                cached.active,
+                getAuthorities(cached.role)
+        );
+    }
 
-        return authorities;
+    private static final class CachedUser {
+        private final Long userId;
+        private final String username;
+        private final String password;
+        private final boolean active;
+        private final User.Role role;
+
+        private CachedUser(Long userId, String username, String password, boolean active, User.Role role) {
+            this.userId = userId;
+            this.username = username;
+            this.password = password;
+            this.active = active;
+            this.role = role;
+        }
     }
 }
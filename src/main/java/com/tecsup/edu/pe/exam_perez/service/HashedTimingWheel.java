@@ -0,0 +1,104 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rueda de temporización con hash para vencimientos masivos
+ * Programar y cancelar son O(1); cada tick solo revisa la ranura que le corresponde,
+ * de modo que el costo no depende de la cantidad total de vencimientos pendientes.
+ * Un vencimiento más lejano que una vuelta completa queda en su ranura y se ignora
+ * en las vueltas anteriores (comparando su tick de vencimiento con el actual).
+ */
+final class HashedTimingWheel<K> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final Set<K>[] buckets;
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+
+    // Último tick ya procesado
+    private long currentTick;
+
+    /**
+     * La cantidad de ranuras se redondea a la siguiente potencia de 2
+     */
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("El tick debe ser mayor a 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.buckets = new Set[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new HashSet<>();
+        }
+    }
+
+    /**
+     * Programar (o reprogramar) el vencimiento de una clave
+     * Un vencimiento ya pasado se entrega en el próximo tick
+     */
+    synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long elapsed = Math.max(0, deadlineMillis - startMillis);
+        long tick = Math.max((elapsed + tickMillis - 1) / tickMillis, currentTick + 1);
+        deadlineTicks.put(key, tick);
+        buckets[(int) (tick & mask)].add(key);
+    }
+
+    /**
+     * Cancelar el vencimiento de una clave; retorna false si no estaba programada
+     */
+    synchronized boolean cancel(K key) {
+        Long tick = deadlineTicks.remove(key);
+        if (tick == null) {
+            return false;
+        }
+        buckets[(int) (tick & mask)].remove(key);
+        return true;
+    }
+
+    /**
+     * Avanzar hasta el instante dado y retornar las claves vencidas en el camino
+     */
+    synchronized List<K> advance(long nowMillis) {
+        long targetTick = Math.max(0, nowMillis - startMillis) / tickMillis;
+        List<K> expired = new ArrayList<>();
+        if (targetTick <= currentTick) {
+            return expired;
+        }
+
+        // Tras una pausa mayor a una vuelta basta con revisar cada ranura una vez
+        long from = Math.max(currentTick + 1, targetTick - mask);
+        for (long tick = from; tick <= targetTick; tick++) {
+            Iterator<K> iterator = buckets[(int) (tick & mask)].iterator();
+            while (iterator.hasNext()) {
+                K key = iterator.next();
+                if (deadlineTicks.get(key) <= targetTick) {
+                    iterator.remove();
+                    deadlineTicks.remove(key);
+                    expired.add(key);
+                }
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    /**
+     * Cantidad de vencimientos pendientes
+     */
+    synchronized int size() {
+        return deadlineTicks.size();
+    }
+}
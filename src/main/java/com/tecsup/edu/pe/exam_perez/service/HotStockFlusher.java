@@ -0,0 +1,148 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.config.SchedulingConfig;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.entity.StockLedgerCheckpoint;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import com.tecsup.edu.pe.exam_perez.repository.StockLedgerCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritura diferida del libro de stock en memoria hacia la tabla products
+ * Cada intervalo corta el diario, aplica los deltas netos y guarda la secuencia del corte
+ * en una sola transacción; los segmentos del diario se borran solo tras el commit.
+ * Al arrancar aplica los movimientos del diario posteriores a la última secuencia guardada.
+ */
+@Component
+public class HotStockFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockFlusher.class);
+    private static final String CHECKPOINT = "hot-stock";
+
+    @Autowired
+    private HotStockLedger ledger;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedgerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private ProductJournal productJournal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${products.hot-stock.journal-dir:data/hot-stock}")
+    private String journalDirectory;
+
+    @Value("${products.hot-stock.product-ids:}")
+    private List<Long> productIds;
+
+    private volatile boolean started;
+
+    /**
+     * Recuperar los movimientos confirmados que no llegaron a la BD y cargar los productos calientes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!ledger.isEnabled()) {
+            return;
+        }
+
+        Path directory = Path.of(journalDirectory);
+        long checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .map(StockLedgerCheckpoint::getLastSequence)
+                .orElse(0L);
+
+        long lastSequence = checkpoint;
+        Map<Long, Long> deltas = new HashMap<>();
+        for (StockLedgerJournal.Entry entry : StockLedgerJournal.readEntries(directory)) {
+            if (entry.sequence() > checkpoint) {
+                deltas.merge(entry.productId(), (long) entry.delta(), Long::sum);
+                lastSequence = Math.max(lastSequence, entry.sequence());
+            }
+        }
+        if (lastSequence > checkpoint) {
+            apply(deltas, lastSequence);
+            log.info("Diario de stock recuperado: {} movimientos en {} productos", lastSequence - checkpoint, deltas.size());
+        }
+
+        StockLedgerJournal journal = new StockLedgerJournal(directory, lastSequence);
+        journal.deleteSegmentsUpTo(lastSequence);
+        ledger.open(journal);
+        productIds.forEach(this::flag);
+        started = true;
+    }
+
+    /**
+     * Pasar un producto al libro en memoria con su stock actual
+     */
+    public void flag(Long id) {
+        Product product = productRepository.findCurrentById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        ledger.seed(id, product.getStock());
+    }
+
+    @Scheduled(fixedDelayString = "${products.hot-stock.flush-interval-ms:100}",
+               scheduler = SchedulingConfig.STOCK_SCHEDULER)
+    public void flush() {
+        if (!started) {
+            return;
+        }
+
+        HotStockLedger.Cut cut;
+        try {
+            cut = ledger.cut();
+        } catch (IOException e) {
+            log.warn("No se pudo cortar el diario de stock: {}", e.getMessage());
+            return;
+        }
+        if (cut == null) {
+            return;
+        }
+
+        try {
+            apply(cut.deltas(), cut.sequence());
+        } catch (RuntimeException e) {
+            // Los segmentos se conservan: el próximo corte incluye estos deltas
+            ledger.failed(cut);
+            log.warn("No se pudo aplicar el stock en memoria a la BD: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            ledger.completed(cut);
+        } catch (IOException e) {
+            // Se reintenta en el próximo corte; la secuencia guardada evita aplicarlos de nuevo
+            log.warn("No se pudieron borrar segmentos del diario de stock: {}", e.getMessage());
+        }
+    }
+
+    private void apply(Map<Long, Long> deltas, long sequence) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            productService.applyStockDeltas(deltas);
+            checkpointRepository.save(new StockLedgerCheckpoint(CHECKPOINT, sequence));
+            productJournal.recordCheckpoint(CHECKPOINT, sequence);
+        });
+    }
+}
@@ -0,0 +1,425 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Libro de stock en memoria para productos marcados como "calientes" (ventas flash)
+ * El stock de cada producto se reparte en varias celdas atómicas: los descuentos concurrentes
+ * hacen compare-and-set sobre celdas distintas en lugar de competir por una misma fila.
+ * Una celda nunca baja de cero, así que no hay sobreventa.
+ * Cada movimiento queda en disco antes del commit de su transacción (beforeCommit, con group
+ * commit) y se acumula como delta pendiente: un checkout que mezcla líneas calientes y de la BD
+ * no confirma las de la BD sin las calientes. Si el commit falla después, se registran los
+ * movimientos inversos; solo una caída entre ambos pasos deja el descuento caliente sin su
+ * transacción (stock de menos, nunca sobreventa). HotStockFlusher aplica los deltas netos a la
+ * tabla products periódicamente.
+ */
+@Component
+public class HotStockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockLedger.class);
+
+    private final ConcurrentHashMap<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+
+    // Deltas netos aún no aplicados en la BD, protegidos por el monitor del diario
+    private final Map<Long, Long> pendingDeltas = new HashMap<>();
+
+    private volatile StockLedgerJournal journal;
+
+    @Value("${products.hot-stock.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.hot-stock.stripes:8}")
+    private int stripes;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("products.hot-stock.products", stocks, Map::size).register(registry);
+        FunctionCounter.builder("products.hot-stock.syncs", this,
+                owner -> owner.journal != null ? owner.journal.getForceCount() : 0).register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Indica si el stock del producto se gestiona en memoria
+     */
+    public boolean isHot(Long id) {
+        return journal != null && stocks.containsKey(id);
+    }
+
+    /**
+     * Stock disponible en memoria; -1 si el producto no es caliente
+     */
+    public long available(Long id) {
+        StripedStock stock = stocks.get(id);
+        return stock != null ? stock.sum() : -1;
+    }
+
+    /**
+     * Descontar stock sin sobreventa; retorna el stock restante o -1 si no alcanza
+     * El descuento en memoria es inmediato; se registra en el diario antes de que la transacción
+     * actual confirme y se deshace si se revierte
+     */
+    public long tryDecrement(Long id, int quantity) {
+        StripedStock stock = find(id);
+        if (!stock.tryDecrement(quantity)) {
+            return -1;
+        }
+        long remaining = stock.sum();
+        submit(List.of(new Move(id, -quantity)));
+        return remaining;
+    }
+
+    /**
+     * Descontar varias líneas en memoria, todas o ninguna; retorna el ID sin stock suficiente o null
+     */
+    public Long tryDecrementAll(Map<Long, Integer> quantities) {
+        List<Move> moves = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StripedStock stock = stocks.get(entry.getKey());
+            if (stock == null || !stock.tryDecrement(entry.getValue())) {
+                undo(moves);
+                if (stock == null) {
+                    throw notFound(entry.getKey());
+                }
+                return entry.getKey();
+            }
+            moves.add(new Move(entry.getKey(), -entry.getValue()));
+        }
+        submit(moves);
+        return null;
+    }
+
+    /**
+     * Devolver stock (reserva liberada o vencida) cuando la transacción actual confirme
+     * Hasta entonces no es vendible: si la transacción se revierte el stock no reaparece
+     */
+    public void increment(Long id, int quantity) {
+        submit(List.of(new Move(id, quantity)));
+    }
+
+    /**
+     * Empezar a usar el diario (tras recuperar los segmentos anteriores)
+     */
+    void open(StockLedgerJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Marcar un producto como caliente con el stock actual de la BD
+     */
+    void seed(Long id, int stock) {
+        stocks.put(id, new StripedStock(stripes, stock));
+    }
+
+    /**
+     * Dejar de gestionar un producto (eliminado)
+     */
+    void remove(Long id) {
+        stocks.remove(id);
+    }
+
+    /**
+     * Tomar los deltas pendientes y cortar el diario en el mismo instante
+     * Todo movimiento con secuencia menor o igual a la del corte está incluido en los deltas;
+     * retorna null si no hubo movimientos desde el corte anterior
+     */
+    Cut cut() throws IOException {
+        synchronized (journal) {
+            if (pendingDeltas.isEmpty()) {
+                return null;
+            }
+            long sequence = journal.roll();
+            Map<Long, Long> deltas = new HashMap<>(pendingDeltas);
+            pendingDeltas.clear();
+            return new Cut(sequence, deltas);
+        }
+    }
+
+    /**
+     * El corte quedó aplicado en la BD: sus segmentos ya no son necesarios
+     */
+    void completed(Cut cut) throws IOException {
+        journal.deleteSegmentsUpTo(cut.sequence());
+    }
+
+    /**
+     * El corte no se pudo aplicar: sus deltas vuelven a quedar pendientes
+     */
+    void failed(Cut cut) {
+        synchronized (journal) {
+            cut.deltas().forEach((id, delta) -> pendingDeltas.merge(id, delta, Long::sum));
+        }
+    }
+
+    // Un producto eliminado en paralelo (deleteProduct) deja de ser caliente entre isHot y el descuento
+    private StripedStock find(Long id) {
+        StripedStock stock = stocks.get(id);
+        if (stock == null) {
+            throw notFound(id);
+        }
+        return stock;
+    }
+
+    private static RuntimeException notFound(Long id) {
+        return new RuntimeException("Producto no encontrado con ID: " + id);
+    }
+
+    // Con transacción activa los movimientos se registran antes del commit; todos los de una
+    // transacción comparten una sola espera a disco
+    private void submit(List<Move> moves) {
+        if (moves.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(moves);
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingMoves pending && pending.owner() == this) {
+                pending.moves().addAll(moves);
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new PendingMoves(this, new ArrayList<>(moves)));
+    }
+
+    /**
+     * Registrar los movimientos fuera de una transacción, aplicar las devoluciones en memoria
+     * y esperar a que estén en disco
+     * Si el diario falla, los descuentos ya aplicados en memoria se devuelven
+     */
+    private void commit(List<Move> moves) {
+        try {
+            journal(moves);
+            apply(moves);
+        } catch (JournalFailure e) {
+            // Los movimientos sin registrar no llegan a la BD: se deshacen en memoria
+            apply(moves.subList(0, e.recorded));
+            undo(moves.subList(e.recorded, moves.size()));
+            throw new IllegalStateException("No se pudo registrar el movimiento de stock", e.getCause());
+        }
+    }
+
+    /**
+     * Registrar los movimientos y esperar a que estén en disco; retorna cuántos se registraron
+     */
+    private int journal(List<Move> moves) throws JournalFailure {
+        StockLedgerJournal current = journal;
+        long last = 0;
+        int recorded = 0;
+        try {
+            for (Move move : moves) {
+                last = record(current, move);
+                recorded++;
+            }
+            current.awaitDurable(last);
+            return recorded;
+        } catch (IOException e) {
+            throw new JournalFailure(recorded, e);
+        }
+    }
+
+    private long record(StockLedgerJournal current, Move move) throws IOException {
+        synchronized (current) {
+            long sequence = current.append(move.productId(), move.delta());
+            pendingDeltas.merge(move.productId(), (long) move.delta(), Long::sum);
+            return sequence;
+        }
+    }
+
+    // Las devoluciones solo se vuelven vendibles una vez registradas y confirmadas
+    private void apply(List<Move> moves) {
+        for (Move move : moves) {
+            StripedStock stock = stocks.get(move.productId());
+            if (move.delta() > 0 && stock != null) {
+                stock.add(move.delta());
+            }
+        }
+    }
+
+    /**
+     * Anular en el diario movimientos ya registrados cuya transacción no confirmó
+     */
+    private void compensate(List<Move> moves) {
+        List<Move> inverse = moves.stream().map(move -> new Move(move.productId(), -move.delta())).toList();
+        try {
+            journal(inverse);
+        } catch (JournalFailure e) {
+            log.error("No se pudieron anular en el diario {} movimientos de stock revertidos: {}",
+                    inverse.size() - e.recorded, e.getCause().getMessage());
+        }
+    }
+
+    // Solo los descuentos se aplicaron en memoria antes del commit
+    private void undo(List<Move> moves) {
+        for (Move move : moves) {
+            StripedStock stock = stocks.get(move.productId());
+            if (move.delta() < 0 && stock != null) {
+                stock.add(-move.delta());
+            }
+        }
+    }
+
+    /**
+     * Movimiento de stock de un producto: delta negativo para descuentos, positivo para devoluciones
+     */
+    private record Move(Long productId, int delta) {
+    }
+
+    /**
+     * Movimientos de una transacción: se registran en beforeCommit, las devoluciones se aplican
+     * en afterCommit y, si la transacción se revierte, los descuentos se devuelven en memoria
+     * y lo ya registrado se anula en el diario
+     */
+    private static final class PendingMoves implements TransactionSynchronization {
+
+        private final HotStockLedger owner;
+        private final List<Move> moves;
+        private int recorded;
+
+        PendingMoves(HotStockLedger owner, List<Move> moves) {
+            this.owner = owner;
+            this.moves = moves;
+        }
+
+        HotStockLedger owner() {
+            return owner;
+        }
+
+        List<Move> moves() {
+            return moves;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            try {
+                recorded = owner.journal(moves);
+            } catch (JournalFailure e) {
+                recorded = e.recorded;
+                throw new IllegalStateException("No se pudo registrar el movimiento de stock", e.getCause());
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            owner.apply(moves);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) {
+                owner.undo(moves);
+                if (recorded > 0) {
+                    owner.compensate(moves.subList(0, recorded));
+                }
+            }
+        }
+    }
+
+    private static final class JournalFailure extends Exception {
+
+        private final int recorded;
+
+        JournalFailure(int recorded, IOException cause) {
+            super(cause);
+            this.recorded = recorded;
+        }
+    }
+
+    /**
+     * Deltas netos por producto hasta una secuencia del diario
+     */
+    record Cut(long sequence, Map<Long, Long> deltas) {
+    }
+
+    /**
+     * Contador de stock repartido en celdas separadas por línea de caché
+     * Un descuento prueba primero la celda asignada al hilo y luego las demás; si ninguna
+     * alcanza por sí sola, se juntan todas bajo bloqueo para decidir con el total exacto.
+     */
+    static final class StripedStock {
+
+        // 8 longs = 64 bytes entre celdas para evitar falso compartir
+        private static final int PADDING = 8;
+
+        private final AtomicLongArray cells;
+        private final int mask;
+
+        StripedStock(int stripes, long initial) {
+            int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            this.mask = size - 1;
+            this.cells = new AtomicLongArray(size * PADDING);
+            spread(initial);
+        }
+
+        boolean tryDecrement(int quantity) {
+            int start = probe();
+            for (int i = 0; i <= mask; i++) {
+                int index = ((start + i) & mask) * PADDING;
+                long value;
+                while ((value = cells.get(index)) >= quantity) {
+                    if (cells.compareAndSet(index, value, value - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            return rebalanceAndDecrement(quantity);
+        }
+
+        void add(long quantity) {
+            cells.addAndGet((probe() & mask) * PADDING, quantity);
+        }
+
+        long sum() {
+            long total = 0;
+            for (int i = 0; i <= mask; i++) {
+                total += cells.get(i * PADDING);
+            }
+            return total;
+        }
+
+        private synchronized boolean rebalanceAndDecrement(int quantity) {
+            long total = 0;
+            for (int i = 0; i <= mask; i++) {
+                total += cells.getAndSet(i * PADDING, 0);
+            }
+            boolean enough = total >= quantity;
+            spread(enough ? total - quantity : total);
+            return enough;
+        }
+
+        private void spread(long total) {
+            long share = total / (mask + 1);
+            long remainder = total % (mask + 1);
+            for (int i = 0; i <= mask; i++) {
+                cells.addAndGet(i * PADDING, share + (i < remainder ? 1 : 0));
+            }
+        }
+
+        private static int probe() {
+            int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
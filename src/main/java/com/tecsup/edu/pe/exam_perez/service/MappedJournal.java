@@ -0,0 +1,240 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de solo-escritura al final sobre un archivo mapeado en memoria
+ * Cada registro es [longitud][CRC][datos]; un registro nunca cruza el límite de una región
+ * mapeada (el resto de la región se marca como relleno). Escribir solo copia bytes en la
+ * región; la durabilidad se obtiene con awaitDurable, que agrupa en un único force()
+ * todos los registros escritos mientras otro hilo esperaba el disco (group commit).
+ */
+final class MappedJournal implements Closeable {
+
+    private static final int HEADER = 8;
+    private static final int PADDING_MARKER = -1;
+    private static final int ZERO_CHUNK = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long regionSize;
+
+    // Estado de escritura, protegido por el monitor de la instancia
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    // Estado de sincronización con el disco
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition forced = syncLock.newCondition();
+    private long durable;
+    private boolean forcing;
+    private long forceCount;
+
+    /**
+     * Abrir el diario y continuar después del último registro válido
+     */
+    MappedJournal(Path file, long regionSize) throws IOException {
+        if (regionSize <= HEADER || regionSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamaño de región inválido: " + regionSize);
+        }
+        this.regionSize = regionSize;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        long end = Files.exists(file) ? read(file, regionSize, record -> { }) : 0;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Lo que haya después del último registro válido (escrituras interrumpidas) se descarta
+        long previousSize = channel.size();
+        this.regionStart = end - end % regionSize;
+        if (previousSize > regionStart + regionSize) {
+            channel.truncate(regionStart + regionSize);
+        }
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+        if (previousSize > end) {
+            clearFrom((int) (end - regionStart));
+        }
+        this.position = end;
+        this.durable = end;
+    }
+
+    /**
+     * Copiar un registro al final del diario; retorna la posición donde termina
+     * El registro no es durable hasta que awaitDurable cubra esa posición
+     */
+    long append(byte[] data) throws IOException {
+        if (data.length == 0 || HEADER + data.length > regionSize) {
+            throw new IllegalArgumentException("Tamaño de registro inválido: " + data.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+
+        synchronized (this) {
+            int offset = (int) (position - regionStart);
+            if (regionSize - offset < HEADER + data.length) {
+                if (regionSize - offset >= Integer.BYTES) {
+                    region.putInt(offset, PADDING_MARKER);
+                }
+                nextRegion();
+                offset = 0;
+            }
+            region.putInt(offset, data.length);
+            region.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            region.put(offset + HEADER, data);
+            position = regionStart + offset + HEADER + data.length;
+            return position;
+        }
+    }
+
+    /**
+     * Esperar a que todo lo escrito hasta la posición dada esté en disco
+     * Si otro hilo está forzando, se espera a que termine y, si aún falta, el siguiente
+     * force() cubre de una vez todos los registros acumulados mientras tanto
+     */
+    void awaitDurable(long end) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable < end) {
+                if (forcing) {
+                    forced.await();
+                    continue;
+                }
+                forcing = true;
+                long from = durable;
+                long target = from;
+                syncLock.unlock();
+                try {
+                    target = force(from);
+                } finally {
+                    syncLock.lock();
+                    forcing = false;
+                    forceCount++;
+                    durable = Math.max(durable, target);
+                    forced.signalAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Espera de escritura del diario interrumpida");
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Cantidad de force() realizados; frente a los registros escritos mide cuánto agrupa el group commit
+     */
+    long getForceCount() {
+        syncLock.lock();
+        try {
+            return forceCount;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            region.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Recorrer los registros válidos del archivo en orden; retorna la posición final
+     * La lectura termina en el primer registro vacío, incompleto o con CRC inválido
+     */
+    static long read(Path file, long regionSize, Consumer<ByteBuffer> consumer) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long length = Math.min(regionSize, size - start);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int offset = 0;
+                while (true) {
+                    if (length - offset < HEADER) {
+                        break;
+                    }
+                    int recordLength = region.getInt(offset);
+                    if (recordLength == PADDING_MARKER) {
+                        break;
+                    }
+                    if (recordLength <= 0 || offset + HEADER + (long) recordLength > length) {
+                        return start + offset;
+                    }
+                    ByteBuffer record = region.slice(offset + HEADER, recordLength);
+                    crc.reset();
+                    crc.update(record.duplicate());
+                    if ((int) crc.getValue() != region.getInt(offset + Integer.BYTES)) {
+                        return start + offset;
+                    }
+                    consumer.accept(record);
+                    offset += HEADER + recordLength;
+                }
+                if (length < regionSize) {
+                    return start + offset;
+                }
+                start += regionSize;
+            }
+            return start;
+        }
+    }
+
+    private long force(long from) {
+        MappedByteBuffer buffer;
+        long start;
+        long target;
+        synchronized (this) {
+            buffer = region;
+            start = regionStart;
+            target = position;
+        }
+        // Las regiones anteriores se forzaron completas al pasar a la siguiente
+        long begin = Math.max(from, start);
+        if (target > begin) {
+            buffer.force((int) (begin - start), (int) (target - begin));
+        }
+        return target;
+    }
+
+    private void clearFrom(int start) {
+        byte[] zeros = new byte[ZERO_CHUNK];
+        byte[] chunk = new byte[ZERO_CHUNK];
+        for (int offset = start; offset < regionSize; offset += ZERO_CHUNK) {
+            int length = (int) Math.min(ZERO_CHUNK, regionSize - offset);
+            region.get(offset, chunk, 0, length);
+            if (Arrays.mismatch(chunk, 0, length, zeros, 0, length) >= 0) {
+                region.put(offset, zeros, 0, length);
+            }
+        }
+    }
+
+    private void nextRegion() throws IOException {
+        region.force();
+        regionStart += regionSize;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+    }
+}
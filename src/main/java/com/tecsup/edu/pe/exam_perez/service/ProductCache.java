@@ -0,0 +1,62 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caché de lectura (read-through) del detalle de productos por ID
+ * Caffeine usa W-TinyLFU: admite una entrada nueva solo si es más frecuente que la que
+ * desalojaría, así los pocos productos más consultados permanecen en memoria.
+ * ProductService invalida las entradas después del commit de cada escritura.
+ * Estadísticas en /actuator/metrics/cache.gets, cache.evictions y cache.size (cache=products)
+ */
+@Component
+public class ProductCache {
+
+    private final Cache<Long, ProductDetail> cache;
+    private final boolean enabled;
+
+    public ProductCache(@Value("${products.cache.enabled:true}") boolean enabled,
+                        @Value("${products.cache.max-size:10000}") long maxSize,
+                        @Value("${products.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "products");
+    }
+
+    /**
+     * Obtener el detalle desde la caché o cargarlo; los productos inexistentes no se guardan
+     * La carga es atómica por clave: una invalidación concurrente espera y luego la descarta
+     */
+    public Optional<ProductDetail> get(Long id, Function<Long, ProductDetail> loader) {
+        if (!enabled) {
+            return Optional.ofNullable(loader.apply(id));
+        }
+        return Optional.ofNullable(cache.get(id, loader));
+    }
+
+    /**
+     * Descartar la entrada de un producto modificado o eliminado
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+}
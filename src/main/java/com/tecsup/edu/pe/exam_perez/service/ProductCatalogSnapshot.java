@@ -0,0 +1,352 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.dto.ProductFilter;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Modo opcional de servicio desde una instantánea inmutable del catálogo
+ * Todas las lecturas de productos se resuelven contra una instantánea indexada
+ * (por ID, categoría, precio y stock) publicada en una única referencia volátil:
+ * sin bloqueos ni acceso a BD. Cada escritura confirmada publica una instantánea
+ * nueva (copy-on-write) en la que solo se parchean, por búsqueda binaria, las listas
+ * ordenadas que contienen al producto; los lectores en curso siguen usando la anterior.
+ */
+@Component
+public class ProductCatalogSnapshot {
+
+    // Mismo umbral que ProductRepository.findLowStockPage
+    static final int LOW_STOCK_THRESHOLD = 10;
+
+    private static final Comparator<ProductDetail> BY_ID = Comparator.comparing(ProductDetail::id);
+    private static final Comparator<ProductDetail> BY_PRICE =
+            Comparator.comparing(ProductDetail::price).thenComparing(ProductDetail::id);
+
+    private final ProductVersions versions = new ProductVersions();
+    private volatile Snapshot current = Snapshot.of(List.of());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${products.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("products.snapshot.size", this, snapshot -> snapshot.current.allById.size()).register(registry);
+    }
+
+    /**
+     * Carga inicial: después de data.sql y de los CommandLineRunner (DataLoader)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    synchronized void init() {
+        if (enabled) {
+            List<ProductDetail> products = productRepository.findAll().stream().map(ProductDetail::from).toList();
+            products.forEach(product -> versions.update(product.id(), product.version(), () -> { }));
+            current = Snapshot.of(products);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Instantánea vigente; se debe leer una sola vez por request para obtener una vista consistente
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    /**
+     * Publicar una instantánea con el producto nuevo o modificado
+     * Se ignora si ya se publicó una versión posterior (callbacks afterCommit en desorden)
+     */
+    public synchronized void apply(Product product) {
+        if (!enabled) {
+            return;
+        }
+        ProductDetail detail = ProductDetail.from(product);
+        versions.update(detail.id(), detail.version(),
+                () -> current = current.replace(current.findById(detail.id()).orElse(null), detail));
+    }
+
+    /**
+     * Publicar una instantánea sin el producto eliminado
+     */
+    public synchronized void remove(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        versions.remove(productId, () -> current.findById(productId)
+                .ifPresent(previous -> current = current.replace(previous, null)));
+    }
+
+    /**
+     * Catálogo inmutable con sus índices precalculados
+     * Las listas están ordenadas para paginar por cursor con búsqueda binaria
+     */
+    public static final class Snapshot {
+
+        private final List<ProductDetail> allById;
+        private final List<ProductDetail> activeById;
+        private final Map<String, List<ProductDetail>> activeByCategory;
+        private final List<ProductDetail> allByPrice;
+        private final List<ProductDetail> lowStockById;
+
+        private Snapshot(List<ProductDetail> allById, List<ProductDetail> activeById,
+                         Map<String, List<ProductDetail>> activeByCategory,
+                         List<ProductDetail> allByPrice, List<ProductDetail> lowStockById) {
+            this.allById = allById;
+            this.activeById = activeById;
+            this.activeByCategory = activeByCategory;
+            this.allByPrice = allByPrice;
+            this.lowStockById = lowStockById;
+        }
+
+        static Snapshot of(Collection<ProductDetail> products) {
+            List<ProductDetail> allById = new ArrayList<>(products);
+            List<ProductDetail> allByPrice = new ArrayList<>(products);
+            List<ProductDetail> activeById = new ArrayList<>();
+            Map<String, List<ProductDetail>> activeByCategory = new HashMap<>();
+            List<ProductDetail> lowStockById = new ArrayList<>();
+
+            allById.sort(BY_ID);
+            allByPrice.sort(BY_PRICE);
+            for (ProductDetail product : allById) {
+                if (isActive(product)) {
+                    activeById.add(product);
+                    activeByCategory.computeIfAbsent(product.category(), key -> new ArrayList<>()).add(product);
+                }
+                if (isLowStock(product)) {
+                    lowStockById.add(product);
+                }
+            }
+            activeByCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+
+            return new Snapshot(Collections.unmodifiableList(allById),
+                    Collections.unmodifiableList(activeById),
+                    Collections.unmodifiableMap(activeByCategory),
+                    Collections.unmodifiableList(allByPrice),
+                    Collections.unmodifiableList(lowStockById));
+        }
+
+        /**
+         * Instantánea nueva con previous reemplazado por product (cualquiera de los dos puede ser null)
+         * Solo se copian las listas que contienen a alguno de los dos y se parchean por búsqueda
+         * binaria, sin reordenar; las demás se comparten con esta instantánea
+         */
+        Snapshot replace(ProductDetail previous, ProductDetail product) {
+            List<ProductDetail> active = patch(activeById, BY_ID,
+                    isActive(previous) ? previous : null, isActive(product) ? product : null);
+            List<ProductDetail> lowStock = patch(lowStockById, BY_ID,
+                    isLowStock(previous) ? previous : null, isLowStock(product) ? product : null);
+
+            Map<String, List<ProductDetail>> byCategory = activeByCategory;
+            if (isActive(previous) || isActive(product)) {
+                Map<String, List<ProductDetail>> patched = new HashMap<>(activeByCategory);
+                if (isActive(previous)) {
+                    patched.computeIfPresent(previous.category(),
+                            (category, list) -> nullIfEmpty(patch(list, BY_ID, previous, null)));
+                }
+                if (isActive(product)) {
+                    patched.put(product.category(), patch(
+                            patched.getOrDefault(product.category(), List.of()), BY_ID, null, product));
+                }
+                byCategory = Collections.unmodifiableMap(patched);
+            }
+
+            return new Snapshot(patch(allById, BY_ID, previous, product), active, byCategory,
+                    patch(allByPrice, BY_PRICE, previous, product), lowStock);
+        }
+
+        /**
+         * Copia de una lista ordenada sin removed y con inserted en su posición
+         */
+        private static List<ProductDetail> patch(List<ProductDetail> sorted, Comparator<ProductDetail> order,
+                                                 ProductDetail removed, ProductDetail inserted) {
+            if (removed == null && inserted == null) {
+                return sorted;
+            }
+            List<ProductDetail> patched = new ArrayList<>(sorted.size() + 1);
+            patched.addAll(sorted);
+            if (removed != null) {
+                int index = Collections.binarySearch(patched, removed, order);
+                if (index >= 0) {
+                    patched.remove(index);
+                }
+            }
+            if (inserted != null) {
+                int index = Collections.binarySearch(patched, inserted, order);
+                if (index >= 0) {
+                    patched.set(index, inserted);
+                } else {
+                    patched.add(-index - 1, inserted);
+                }
+            }
+            return Collections.unmodifiableList(patched);
+        }
+
+        private static List<ProductDetail> nullIfEmpty(List<ProductDetail> list) {
+            return list.isEmpty() ? null : list;
+        }
+
+        private static boolean isActive(ProductDetail product) {
+            return product != null && Boolean.TRUE.equals(product.active());
+        }
+
+        private static boolean isLowStock(ProductDetail product) {
+            return isActive(product) && product.stock() < LOW_STOCK_THRESHOLD;
+        }
+
+        public Optional<ProductDetail> findById(Long id) {
+            int low = 0;
+            int high = allById.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                ProductDetail product = allById.get(mid);
+                int compare = product.id().compareTo(id);
+                if (compare == 0) {
+                    return Optional.of(product);
+                }
+                if (compare < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return Optional.empty();
+        }
+
+        public List<ProductDetail> activePage(long afterId, int limit) {
+            return pageAfterId(activeById, afterId, limit);
+        }
+
+        public List<ProductDetail> categoryPage(String category, long afterId, int limit) {
+            return pageAfterId(activeByCategory.getOrDefault(category, List.of()), afterId, limit);
+        }
+
+        public List<ProductDetail> lowStockPage(long afterId, int limit) {
+            return pageAfterId(lowStockById, afterId, limit);
+        }
+
+        /**
+         * Productos con precio en [minPrice, maxPrice] posteriores a (afterPrice, afterId)
+         */
+        public List<ProductDetail> priceRangePage(BigDecimal maxPrice, BigDecimal afterPrice, long afterId, int limit) {
+            int low = 0;
+            int high = allByPrice.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                ProductDetail product = allByPrice.get(mid);
+                int compare = product.price().compareTo(afterPrice);
+                if (compare < 0 || (compare == 0 && product.id() <= afterId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            List<ProductDetail> page = new ArrayList<>(limit);
+            for (int i = low; i < allByPrice.size() && page.size() < limit; i++) {
+                ProductDetail product = allByPrice.get(i);
+                if (product.price().compareTo(maxPrice) > 0) {
+                    break;
+                }
+                page.add(product);
+            }
+            return page;
+        }
+
+        /**
+         * Consulta facetada en memoria con la misma semántica que ProductService.queryProducts:
+         * cada faceta se cuenta con todos los filtros excepto el suyo
+         */
+        public QueryResult query(ProductFilter filter, long afterId, int limit, List<BigDecimal> priceBounds) {
+            List<ProductDetail> rows = new ArrayList<>(limit);
+            Map<String, Long> categories = new TreeMap<>();
+            Map<String, Long> brands = new TreeMap<>();
+            long[] buckets = new long[priceBounds.size() + 1];
+
+            for (ProductDetail product : activeById) {
+                boolean category = filter.categories() == null || filter.categories().isEmpty()
+                        || filter.categories().contains(product.category());
+                boolean brand = filter.brands() == null || filter.brands().isEmpty()
+                        || filter.brands().contains(product.brand());
+                boolean price = (filter.minPrice() == null || product.price().compareTo(filter.minPrice()) >= 0)
+                        && (filter.maxPrice() == null || product.price().compareTo(filter.maxPrice()) <= 0);
+                boolean stock = !Boolean.TRUE.equals(filter.inStock()) || product.stock() > 0;
+
+                if (category && brand && price && stock && product.id() > afterId && rows.size() < limit) {
+                    rows.add(product);
+                }
+                if (brand && price && stock) {
+                    categories.merge(product.category(), 1L, Long::sum);
+                }
+                if (category && price && stock && product.brand() != null) {
+                    brands.merge(product.brand(), 1L, Long::sum);
+                }
+                if (category && brand && stock) {
+                    buckets[bucketOf(product.price(), priceBounds)]++;
+                }
+            }
+
+            List<Long> bucketCounts = new ArrayList<>(buckets.length);
+            for (long count : buckets) {
+                bucketCounts.add(count);
+            }
+            return new QueryResult(rows, categories, brands, bucketCounts);
+        }
+
+        private static int bucketOf(BigDecimal price, List<BigDecimal> bounds) {
+            int bucket = 0;
+            while (bucket < bounds.size() && price.compareTo(bounds.get(bucket)) >= 0) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        private static List<ProductDetail> pageAfterId(List<ProductDetail> sortedById, long afterId, int limit) {
+            int low = 0;
+            int high = sortedById.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedById.get(mid).id() <= afterId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return sortedById.subList(low, Math.min(sortedById.size(), low + limit));
+        }
+    }
+
+    /**
+     * Resultado de la consulta facetada en memoria
+     */
+    public record QueryResult(List<ProductDetail> rows,
+                              Map<String, Long> categories,
+                              Map<String, Long> brands,
+                              List<Long> priceBuckets) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductFacets;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Registro en memoria de categorías y marcas con su cantidad de productos activos
+ * Reemplaza los SELECT DISTINCT y COUNT por llamada: se carga una vez al arrancar y
+ * ProductService lo actualiza tras cada commit. Las lecturas usan una instantánea
+ * inmutable que solo se vuelve a publicar cuando cambia algún conteo.
+ */
+@Component
+public class ProductFacetRegistry {
+
+    private final Map<Long, FacetKey> activeProducts = new HashMap<>();
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private final Map<String, Long> brandCounts = new HashMap<>();
+    private final ProductVersions versions = new ProductVersions();
+
+    private volatile ProductFacets snapshot = new ProductFacets(Map.of(), Map.of(), 0);
+    private volatile List<String> categories = List.of();
+    private volatile List<String> brands = List.of();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    /**
+     * Carga inicial: después de data.sql y de los CommandLineRunner (DataLoader)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    synchronized void init() {
+        productRepository.findByActiveTrue().forEach(product ->
+                versions.update(product.getId(), product.getVersion(), () -> add(product.getId(), FacetKey.of(product))));
+        publish();
+    }
+
+    /**
+     * Registrar un producto nuevo o modificado; los inactivos dejan de contarse
+     * Se ignora si ya se registró una versión posterior (callbacks afterCommit en desorden)
+     */
+    public synchronized void index(Product product) {
+        FacetKey key = Boolean.TRUE.equals(product.getActive()) ? FacetKey.of(product) : null;
+        versions.update(product.getId(), product.getVersion(), () -> {
+            FacetKey previous = activeProducts.get(product.getId());
+            if (Objects.equals(previous, key)) {
+                // Cambios de precio o stock no afectan las facetas
+                return;
+            }
+
+            if (previous != null) {
+                subtract(product.getId(), previous);
+            }
+            if (key != null) {
+                add(product.getId(), key);
+            }
+            publish();
+        });
+    }
+
+    /**
+     * Quitar un producto eliminado
+     */
+    public synchronized void remove(Long productId) {
+        versions.remove(productId, () -> {
+            FacetKey previous = activeProducts.get(productId);
+            if (previous != null) {
+                subtract(productId, previous);
+                publish();
+            }
+        });
+    }
+
+    public ProductFacets getFacets() {
+        return snapshot;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public List<String> getBrands() {
+        return brands;
+    }
+
+    public long countByCategory(String category) {
+        return snapshot.categories().getOrDefault(category, 0L);
+    }
+
+    public long countActive() {
+        return snapshot.totalActive();
+    }
+
+    private void add(Long productId, FacetKey key) {
+        activeProducts.put(productId, key);
+        categoryCounts.merge(key.category, 1L, Long::sum);
+        if (key.brand != null) {
+            brandCounts.merge(key.brand, 1L, Long::sum);
+        }
+    }
+
+    private void subtract(Long productId, FacetKey key) {
+        activeProducts.remove(productId);
+        categoryCounts.computeIfPresent(key.category, (category, count) -> count > 1 ? count - 1 : null);
+        if (key.brand != null) {
+            brandCounts.computeIfPresent(key.brand, (brand, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Publicar una instantánea inmutable y ordenada del estado actual
+     */
+    private void publish() {
+        Map<String, Long> sortedCategories = Collections.unmodifiableMap(new TreeMap<>(categoryCounts));
+        Map<String, Long> sortedBrands = Collections.unmodifiableMap(new TreeMap<>(brandCounts));
+        categories = List.copyOf(sortedCategories.keySet());
+        brands = List.copyOf(sortedBrands.keySet());
+        snapshot = new ProductFacets(sortedCategories, sortedBrands, activeProducts.size());
+    }
+
+    /**
+     * Valores de faceta de un producto activo
+     */
+    private static final class FacetKey {
+        private final String category;
+        private final String brand;
+
+        private FacetKey(String category, String brand) {
+            this.category = category;
+            this.brand = brand;
+        }
+
+        private static FacetKey of(Product product) {
+            return new FacetKey(product.getCategory(), product.getBrand());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FacetKey other)) return false;
+            return Objects.equals(category, other.category) && Objects.equals(brand, other.brand);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, brand);
+        }
+    }
+}
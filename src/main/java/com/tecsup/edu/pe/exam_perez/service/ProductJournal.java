@@ -0,0 +1,538 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.entity.StockLedgerCheckpoint;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import com.tecsup.edu.pe.exam_perez.repository.ProductSnapshotRestorer;
+import com.tecsup.edu.pe.exam_perez.repository.StockLedgerCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Diario durable de mutaciones de productos para perfiles con BD en memoria
+ * Tras cada commit que modifica productos se agrega la instantánea completa de cada producto
+ * (o su eliminación definitiva) a un archivo mapeado en memoria, y la respuesta al cliente espera a que el
+ * registro esté en disco; las transacciones concurrentes comparten un mismo force() (group commit).
+ * Las reservas de stock se registran igual: el stock de las instantáneas ya descuenta lo apartado,
+ * así que las reservas vigentes deben volver con él para devolverlo al confirmarse su vencimiento.
+ * Al arrancar, antes de que el servidor web acepte peticiones y de que corran las tareas
+ * programadas, se reconstruye la tabla products con la última versión de cada producto y el
+ * diario se compacta a esas instantáneas.
+ */
+@Component
+public class ProductJournal implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductJournal.class);
+
+    static final byte PRODUCT = 1;
+    static final byte DELETION = 2;
+    static final byte CHECKPOINT = 3;
+    static final byte RESERVATION = 4;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSnapshotRestorer snapshotRestorer;
+
+    @Autowired
+    private StockLedgerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${products.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${products.journal.path:data/products.journal}")
+    private String path;
+
+    @Value("${products.journal.region-bytes:67108864}")
+    private long regionSize;
+
+    @Value("${products.journal.fsync:true}")
+    private boolean fsync;
+
+    private volatile MappedJournal journal;
+
+    private Counter recordCounter;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        recordCounter = Counter.builder("products.journal.records").register(registry);
+        FunctionCounter.builder("products.journal.syncs", this,
+                owner -> owner.journal != null ? owner.journal.getForceCount() : 0).register(registry);
+    }
+
+    /**
+     * Corre durante el refresh del contexto, con todos los beans creados: el servidor web y las
+     * tareas programadas arrancan después, y los listeners de ApplicationReadyEvent (índices,
+     * stock en memoria, reservas) cargan el estado ya restaurado
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo recuperar el diario de productos", e);
+        }
+    }
+
+    /**
+     * Reconstruir los productos desde el diario y empezar a registrar mutaciones
+     */
+    void replay() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Path file = Path.of(path);
+        if (Files.exists(file)) {
+            long start = System.nanoTime();
+            Replay replay = Replay.read(file, regionSize);
+            if (replay.getRecords() > 0) {
+                restore(replay);
+                compact(file, replay);
+                log.info("Diario de productos recuperado: {} registros, {} productos, {} bajas, {} reservas vigentes en {} ms",
+                        replay.getRecords(), replay.getProducts().size(), replay.getDeleted().size(),
+                        replay.getHeldReservations().size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        journal = new MappedJournal(file, regionSize);
+    }
+
+    /**
+     * Registrar el estado del producto cuando la transacción actual confirme
+     */
+    public void record(Product product) {
+        append(() -> encodeProduct(ProductDetail.from(product)));
+    }
+
+    /**
+     * Registrar la eliminación definitiva de un producto cuando la transacción actual confirme
+     * La versión es la de la fila eliminada: ninguna instantánea con versión menor o igual la revive.
+     * Una desactivación no es una baja: se registra con record como instantánea con active=false.
+     */
+    public void recordDeletion(Long id, Long version) {
+        long deletedVersion = version != null ? version : 0L;
+        append(() -> encodeDeletion(id, deletedVersion));
+    }
+
+    /**
+     * Registrar la secuencia aplicada de otro diario (stock en memoria) junto con los productos
+     * Sin ella, al restaurar los productos se volverían a aplicar movimientos ya incluidos
+     */
+    public void recordCheckpoint(String name, long sequence) {
+        append(() -> encodeCheckpoint(name, sequence));
+    }
+
+    /**
+     * Registrar el estado de una reserva de stock (apartada, confirmada, liberada o vencida)
+     * cuando la transacción actual confirme
+     */
+    public void recordReservation(StockReservation reservation) {
+        append(() -> encodeReservation(reservation));
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        MappedJournal current = journal;
+        journal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    // Con el diario habilitado, una mutación antes de abrirlo o después de cerrarlo no puede perderse en silencio
+    private void append(Supplier<byte[]> record) {
+        MappedJournal current = journal;
+        if (current == null) {
+            if (enabled) {
+                throw new IllegalStateException("El diario de productos no está abierto");
+            }
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(current, List.of(record));
+            return;
+        }
+
+        // Una sola sincronización por transacción: todos sus registros comparten la espera a disco
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingRecords pending && pending.owner() == this) {
+                pending.records().add(record);
+                return;
+            }
+        }
+        List<Supplier<byte[]>> records = new ArrayList<>();
+        records.add(record);
+        TransactionSynchronizationManager.registerSynchronization(new PendingRecords(this, current, records));
+    }
+
+    // Los registros se serializan tras el commit, cuando la entidad ya tiene su versión final
+    private void write(MappedJournal target, List<Supplier<byte[]>> records) {
+        try {
+            long end = 0;
+            for (Supplier<byte[]> record : records) {
+                end = target.append(record.get());
+            }
+            recordCounter.increment(records.size());
+            if (fsync) {
+                target.awaitDurable(end);
+            }
+        } catch (IOException e) {
+            log.error("No se pudo escribir en el diario de productos: {}", e.getMessage());
+            throw new IllegalStateException("No se pudo registrar el cambio en el diario de productos", e);
+        }
+    }
+
+    private void restore(Replay replay) {
+        Set<Long> deleted = replay.getDeleted().keySet();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            if (!deleted.isEmpty()) {
+                productRepository.deleteAllByIdInBatch(deleted);
+            }
+            snapshotRestorer.restoreSnapshots(replay.getProducts().values());
+            snapshotRestorer.restoreReservations(replay.getHeldReservations());
+            replay.getCheckpoints().forEach((name, sequence) -> {
+                long stored = checkpointRepository.findById(name)
+                        .map(StockLedgerCheckpoint::getLastSequence)
+                        .orElse(0L);
+                checkpointRepository.save(new StockLedgerCheckpoint(name, Math.max(stored, sequence)));
+            });
+        });
+        // Los IDs eliminados tampoco se reutilizan: la identidad sigue después del mayor ID registrado.
+        // Es DDL y confirmaría la restauración a medias: va en su propia transacción, tras el commit
+        transaction.executeWithoutResult(status -> snapshotRestorer.restartIdentity(replay.getMaxId() + 1));
+
+        Set<Long> ids = new HashSet<>(replay.getProducts().keySet());
+        ids.addAll(deleted);
+        productRepository.evictFromSecondLevelCache(ids);
+    }
+
+    /**
+     * Reescribir el diario solo con el estado vigente y reemplazarlo de forma atómica
+     * Si el proceso cae a mitad, el diario original queda intacto
+     */
+    private void compact(Path file, Replay replay) throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(compacted);
+        try (MappedJournal target = new MappedJournal(compacted, regionSize)) {
+            for (ProductDetail product : replay.getProducts().values()) {
+                target.append(encodeProduct(product));
+            }
+            for (Map.Entry<Long, Long> deletion : replay.getDeleted().entrySet()) {
+                target.append(encodeDeletion(deletion.getKey(), deletion.getValue()));
+            }
+            for (Map.Entry<String, Long> checkpoint : replay.getCheckpoints().entrySet()) {
+                target.append(encodeCheckpoint(checkpoint.getKey(), checkpoint.getValue()));
+            }
+            // Las reservas ya confirmadas, liberadas o vencidas no afectan al stock restaurado
+            for (StockReservation reservation : replay.getHeldReservations()) {
+                target.append(encodeReservation(reservation));
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static byte[] encodeProduct(ProductDetail product) {
+        return encode(out -> {
+            out.writeByte(PRODUCT);
+            out.writeLong(product.id());
+            out.writeLong(product.version() != null ? product.version() : 0L);
+            writeString(out, product.name());
+            writeString(out, product.description());
+            writeString(out, product.price() != null ? product.price().toPlainString() : null);
+            out.writeInt(product.stock());
+            writeString(out, product.category());
+            writeString(out, product.brand());
+            writeString(out, product.active() != null ? product.active().toString() : null);
+            writeString(out, product.imageUrl());
+            writeString(out, product.createdAt() != null ? product.createdAt().toString() : null);
+            writeString(out, product.updatedAt() != null ? product.updatedAt().toString() : null);
+        });
+    }
+
+    static byte[] encodeDeletion(Long id, long version) {
+        return encode(out -> {
+            out.writeByte(DELETION);
+            out.writeLong(id);
+            out.writeLong(version);
+        });
+    }
+
+    static byte[] encodeCheckpoint(String name, long sequence) {
+        return encode(out -> {
+            out.writeByte(CHECKPOINT);
+            out.writeUTF(name);
+            out.writeLong(sequence);
+        });
+    }
+
+    static byte[] encodeReservation(StockReservation reservation) {
+        return encode(out -> {
+            out.writeByte(RESERVATION);
+            out.writeLong(reservation.getId().getMostSignificantBits());
+            out.writeLong(reservation.getId().getLeastSignificantBits());
+            out.writeLong(reservation.getVersion() != null ? reservation.getVersion() : 0L);
+            out.writeLong(reservation.getProductId());
+            out.writeInt(reservation.getQuantity());
+            out.writeUTF(reservation.getUsername());
+            out.writeUTF(reservation.getStatus().name());
+            out.writeUTF(reservation.getExpiresAt().toString());
+            writeString(out, reservation.getCreatedAt() != null ? reservation.getCreatedAt().toString() : null);
+            writeString(out, reservation.getUpdatedAt() != null ? reservation.getUpdatedAt().toString() : null);
+        });
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private record PendingRecords(ProductJournal owner, MappedJournal target, List<Supplier<byte[]>> records)
+            implements TransactionSynchronization {
+
+        @Override
+        public void afterCommit() {
+            owner.write(target, records);
+        }
+    }
+
+    /**
+     * Estado reconstruido a partir del diario: el último estado de cada producto y de cada reserva
+     * según su versión (en productos, instantánea o eliminación) y la última secuencia de cada diario externo
+     * Al recorrer solo se leen ID y versión de cada registro; se decodifica únicamente
+     * la instantánea que queda vigente por producto.
+     */
+    static final class Replay {
+
+        // Posiciones fijas en registros PRODUCT y DELETION: tipo, ID, versión
+        private static final int ID_OFFSET = 1;
+        private static final int VERSION_OFFSET = 9;
+
+        private final Map<Long, Snapshot> snapshots = new HashMap<>();
+        private final Map<String, Long> checkpoints = new HashMap<>();
+        private final Map<UUID, StockReservation> reservations = new HashMap<>();
+        private Map<Long, ProductDetail> products;
+        private long records;
+
+        static Replay read(Path file, long regionSize) throws IOException {
+            Replay replay = new Replay();
+            MappedJournal.read(file, regionSize, replay::accept);
+            return replay;
+        }
+
+        void accept(ByteBuffer record) {
+            switch (record.get(0)) {
+                case PRODUCT -> accept(record.getLong(ID_OFFSET), record.getLong(VERSION_OFFSET), record);
+                case DELETION -> accept(record.getLong(ID_OFFSET), record.getLong(VERSION_OFFSET), null);
+                case CHECKPOINT -> {
+                    try (DataInputStream in = open(record)) {
+                        in.readByte();
+                        checkpoints.merge(in.readUTF(), in.readLong(), Math::max);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                case RESERVATION -> {
+                    try (DataInputStream in = open(record)) {
+                        in.readByte();
+                        StockReservation reservation = readReservation(in);
+                        // Igual que en productos, dos commits pueden escribirse en orden inverso
+                        reservations.merge(reservation.getId(), reservation,
+                                (current, next) -> next.getVersion() > current.getVersion() ? next : current);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                default -> throw new IllegalStateException("Tipo de registro desconocido en el diario de productos");
+            }
+            products = null;
+            records++;
+        }
+
+        // Dos commits del mismo producto pueden escribirse en orden inverso: gana la versión mayor.
+        // Una eliminación lleva la versión de la fila eliminada y gana el empate con su última instantánea.
+        private void accept(long id, long version, ByteBuffer record) {
+            Snapshot current = snapshots.get(id);
+            boolean deletion = record == null;
+            boolean newer = current == null || version > current.version()
+                    || (version == current.version() && (deletion || !current.isDeletion()));
+            if (!newer) {
+                return;
+            }
+            byte[] data = null;
+            if (!deletion) {
+                data = new byte[record.remaining()];
+                record.get(0, data);
+            }
+            snapshots.put(id, new Snapshot(version, data));
+        }
+
+        private static DataInputStream open(ByteBuffer record) {
+            byte[] data = new byte[record.remaining()];
+            record.get(0, data);
+            return new DataInputStream(new ByteArrayInputStream(data));
+        }
+
+        private static ProductDetail decode(byte[] data) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+                in.readByte();
+                return readProduct(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static ProductDetail readProduct(DataInputStream in) throws IOException {
+            long id = in.readLong();
+            long version = in.readLong();
+            String name = readString(in);
+            String description = readString(in);
+            String price = readString(in);
+            int stock = in.readInt();
+            String category = readString(in);
+            String brand = readString(in);
+            String active = readString(in);
+            String imageUrl = readString(in);
+            String createdAt = readString(in);
+            String updatedAt = readString(in);
+            return new ProductDetail(id, name, description,
+                    price != null ? new BigDecimal(price) : null,
+                    stock, category, brand,
+                    active != null ? Boolean.valueOf(active) : null,
+                    imageUrl,
+                    createdAt != null ? LocalDateTime.parse(createdAt) : null,
+                    updatedAt != null ? LocalDateTime.parse(updatedAt) : null,
+                    version, stock > 0);
+        }
+
+        private static StockReservation readReservation(DataInputStream in) throws IOException {
+            StockReservation reservation = new StockReservation();
+            reservation.setId(new UUID(in.readLong(), in.readLong()));
+            reservation.setVersion(in.readLong());
+            reservation.setProductId(in.readLong());
+            reservation.setQuantity(in.readInt());
+            reservation.setUsername(in.readUTF());
+            reservation.setStatus(StockReservation.Status.valueOf(in.readUTF()));
+            reservation.setExpiresAt(LocalDateTime.parse(in.readUTF()));
+            String createdAt = readString(in);
+            String updatedAt = readString(in);
+            reservation.setCreatedAt(createdAt != null ? LocalDateTime.parse(createdAt) : null);
+            reservation.setUpdatedAt(updatedAt != null ? LocalDateTime.parse(updatedAt) : null);
+            return reservation;
+        }
+
+        Map<Long, ProductDetail> getProducts() {
+            if (products == null) {
+                products = new HashMap<>();
+                snapshots.forEach((id, snapshot) -> {
+                    if (!snapshot.isDeletion()) {
+                        products.put(id, decode(snapshot.data()));
+                    }
+                });
+            }
+            return products;
+        }
+
+        /**
+         * Productos eliminados definitivamente con la versión de la fila eliminada
+         */
+        Map<Long, Long> getDeleted() {
+            Map<Long, Long> deleted = new HashMap<>();
+            snapshots.forEach((id, snapshot) -> {
+                if (snapshot.isDeletion()) {
+                    deleted.put(id, snapshot.version());
+                }
+            });
+            return deleted;
+        }
+
+        /**
+         * Mayor ID registrado, incluidos los eliminados; 0 si no hay productos
+         */
+        long getMaxId() {
+            return snapshots.keySet().stream().mapToLong(Long::longValue).max().orElse(0L);
+        }
+
+        /**
+         * Reservas cuyo último estado registrado es HELD (vigentes al detenerse la aplicación)
+         */
+        List<StockReservation> getHeldReservations() {
+            return reservations.values().stream().filter(StockReservation::isHeld).toList();
+        }
+
+        Map<String, Long> getCheckpoints() {
+            return checkpoints;
+        }
+
+        long getRecords() {
+            return records;
+        }
+
+        // data == null: eliminación definitiva
+        private record Snapshot(long version, byte[] data) {
+
+            boolean isDeletion() {
+                return data == null;
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre nombre, marca y descripción de los productos activos
+ * Reemplaza las búsquedas LIKE '%término%' (recorrido completo de la tabla):
+ * cada término normalizado apunta a los productos que lo contienen con su peso.
+ * Un segundo índice de trigramas sobre el vocabulario permite búsquedas tolerantes a
+ * errores de tipeo ("logitec", "samsumg") sin recorrer todos los productos.
+ * Se construye al arrancar y se actualiza de forma incremental desde ProductService.
+ */
+@Component
+public class ProductSearchIndex {
+
+    // Un término en el nombre pesa más que en la descripción
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Un término que solo coincide como prefijo ("lap" -> "laptop") puntúa la mitad
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private static final Comparator<SearchHit> BY_RELEVANCE =
+            Comparator.comparingDouble(SearchHit::score).reversed()
+                    .thenComparing(hit -> hit.product().id());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+    private final ProductVersions versions = new ProductVersions();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${products.search.fuzzy-threshold:0.3}")
+    private double fuzzyThreshold;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("products.search.index.documents", this, ProductSearchIndex::size).register(registry);
+        Gauge.builder("products.search.index.terms", this, ProductSearchIndex::termCount).register(registry);
+    }
+
+    /**
+     * Construcción inicial: después de data.sql y de los CommandLineRunner (DataLoader)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void init() {
+        productRepository.findByActiveTrue().forEach(this::index);
+    }
+
+    /**
+     * Indexar (o reindexar) un producto; los inactivos se quitan del índice
+     * Se ignora si ya se indexó una versión posterior (callbacks afterCommit en desorden)
+     */
+    public void index(Product product) {
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            versions.update(product.getId(), product.getVersion(), () -> unindexLocked(product.getId()));
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+        TextNormalizer.tokenize(product.getName()).forEach(term -> terms.merge(term, NAME_WEIGHT, Integer::sum));
+        TextNormalizer.tokenize(product.getBrand()).forEach(term -> terms.merge(term, BRAND_WEIGHT, Integer::sum));
+        TextNormalizer.tokenize(product.getDescription())
+                .forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+
+        ProductSummary summary = new ProductSummary(product.getId(), product.getName(), product.getPrice(),
+                product.getStock(), product.getCategory(), product.getBrand());
+
+        versions.update(product.getId(), product.getVersion(), () -> {
+            lock.writeLock().lock();
+            try {
+                unindex(product.getId());
+                documents.put(product.getId(), new IndexedProduct(summary, terms));
+                terms.forEach((term, weight) ->
+                        postings.computeIfAbsent(term, this::addToVocabulary).put(product.getId(), weight));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quitar un producto eliminado del índice
+     */
+    public void remove(Long productId) {
+        versions.remove(productId, () -> unindexLocked(productId));
+    }
+
+    public List<SearchHit> search(String query) {
+        return search(query, false);
+    }
+
+    /**
+     * Buscar productos que contengan todos los términos de la consulta (AND)
+     * Cada término coincide exacto o como prefijo; en modo difuso coincide además con
+     * términos similares por trigramas. Los resultados se ordenan por relevancia
+     * (Σ peso del término × similitud × idf del término de la consulta) y luego por ID.
+     */
+    public List<SearchHit> search(String query, boolean fuzzy) {
+        return searchPage(query, fuzzy, null, Integer.MAX_VALUE).hits();
+    }
+
+    /**
+     * Los limit primeros resultados después de la posición indicada (null = desde el inicio)
+     * Se recorren todas las coincidencias, pero solo se ordenan las que caben en la página
+     * (montículo de tamaño limit). Con posición se usan los idf guardados en ella en vez de
+     * los actuales, para que el puntaje de un producto no cambie entre páginas aunque el
+     * índice sí lo haga: así ningún producto se repite ni se salta por un cambio de idf.
+     */
+    public SearchPage searchPage(String query, boolean fuzzy, SearchPosition after, int limit) {
+        List<String> queryTerms = TextNormalizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new SearchPage(List.of(), List.of());
+        }
+        if (after != null && after.idf().size() != queryTerms.size()) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Double>> matches = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Map<Long, Double> termScores = scoreTerm(term);
+                if (fuzzy) {
+                    scoreSimilarTerms(term, termScores);
+                }
+                if (termScores.isEmpty()) {
+                    return new SearchPage(List.of(), List.of());
+                }
+                matches.add(termScores);
+            }
+
+            List<Double> idf = after != null ? after.idf() : idf(matches);
+            Map<Long, Double> smallest = matches.stream().min(Comparator.comparingInt(Map::size)).orElseThrow();
+
+            // Montículo con el peor de los mejores arriba
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(BY_RELEVANCE.reversed());
+            for (Long id : smallest.keySet()) {
+                Double score = score(id, matches, idf);
+                if (score == null || (after != null && !isAhead(after.score(), after.id(), score, id))) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(new SearchHit(documents.get(id).summary, score));
+                } else if (isAhead(score, id, best.peek().score(), best.peek().product().id())) {
+                    best.poll();
+                    best.add(new SearchHit(documents.get(id).summary, score));
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(best);
+            hits.sort(BY_RELEVANCE);
+            return new SearchPage(hits, idf);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de productos indexados
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Puntaje de cada producto para un término, sin idf: coincidencia exacta o, si no, por prefijo
+     */
+    private Map<Long, Double> scoreTerm(String term) {
+        Map<Long, Double> termScores = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_MATCH_FACTOR;
+            entry.getValue().forEach((id, weight) -> termScores.merge(id, weight * factor, Math::max));
+        }
+        return termScores;
+    }
+
+    /**
+     * Sumar los productos de términos parecidos (similitud de Jaccard sobre trigramas)
+     * Solo se comparan los términos que comparten algún trigrama con el de la consulta
+     */
+    private void scoreSimilarTerms(String term, Map<Long, Double> termScores) {
+        Set<String> queryTrigrams = trigrams(term);
+        Map<String, Integer> sharedCounts = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> candidates = termsByTrigram.get(trigram);
+            if (candidates != null) {
+                candidates.forEach(candidate -> sharedCounts.merge(candidate, 1, Integer::sum));
+            }
+        }
+
+        sharedCounts.forEach((candidate, shared) -> {
+            double similarity = (double) shared / (queryTrigrams.size() + trigrams(candidate).size() - shared);
+            if (similarity < fuzzyThreshold) {
+                return;
+            }
+            postings.get(candidate).forEach((id, weight) -> termScores.merge(id, weight * similarity, Math::max));
+        });
+    }
+
+    /**
+     * idf de cada término de la consulta según cuántos productos coinciden con él
+     */
+    private List<Double> idf(List<Map<Long, Double>> matches) {
+        int totalDocuments = Math.max(1, documents.size());
+        List<Double> idf = new ArrayList<>(matches.size());
+        for (Map<Long, Double> termScores : matches) {
+            idf.add(Math.log(1.0 + (double) totalDocuments / termScores.size()));
+        }
+        return idf;
+    }
+
+    /**
+     * Puntaje de un producto para toda la consulta; null si no coincide con algún término
+     */
+    private static Double score(Long id, List<Map<Long, Double>> matches, List<Double> idf) {
+        double score = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            Double termScore = matches.get(i).get(id);
+            if (termScore == null) {
+                return null;
+            }
+            score += termScore * idf.get(i);
+        }
+        return score;
+    }
+
+    /**
+     * Si (score, id) va antes que (otherScore, otherId): puntaje descendente, id ascendente
+     */
+    private static boolean isAhead(double score, long id, double otherScore, long otherId) {
+        return score > otherScore || (score == otherScore && id < otherId);
+    }
+
+    /**
+     * Trigramas de un término con relleno al estilo pg_trgm: "  term "
+     */
+    private static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Registrar un término nuevo en el índice de trigramas (requiere el lock de escritura)
+     */
+    private Map<Long, Integer> addToVocabulary(String term) {
+        for (String trigram : trigrams(term)) {
+            termsByTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(term);
+        }
+        return new HashMap<>();
+    }
+
+    private void removeFromVocabulary(String term) {
+        for (String trigram : trigrams(term)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private void unindexLocked(Long productId) {
+        lock.writeLock().lock();
+        try {
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quitar las entradas de un producto (requiere el lock de escritura)
+     */
+    private void unindex(Long productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    removeFromVocabulary(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resultado de búsqueda con su puntaje de relevancia
+     */
+    public record SearchHit(ProductSummary product, double score) {
+    }
+
+    /**
+     * Resultados de una página y los idf con que se puntuaron
+     */
+    public record SearchPage(List<SearchHit> hits, List<Double> idf) {
+    }
+
+    /**
+     * Último resultado de la página anterior (puntaje e ID) y los idf de la primera página
+     */
+    public record SearchPosition(double score, long id, List<Double> idf) {
+    }
+
+    private static final class IndexedProduct {
+        private final ProductSummary summary;
+        private final Map<String, Integer> terms;
+
+        private IndexedProduct(ProductSummary summary, Map<String, Integer> terms) {
+            this.summary = summary;
+            this.terms = terms;
+        }
+    }
+}
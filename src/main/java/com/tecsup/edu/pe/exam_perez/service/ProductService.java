@@ -1,15 +1,38 @@
 package com.tecsup.edu.pe.exam_perez.service;
 
+import com.tecsup.edu.pe.exam_perez.dto.CursorPage;
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.dto.ProductFacets;
+import com.tecsup.edu.pe.exam_perez.dto.ProductFilter;
+import com.tecsup.edu.pe.exam_perez.dto.ProductQueryResult;
+import com.tecsup.edu.pe.exam_perez.dto.ProductSuggestion;
+import com.tecsup.edu.pe.exam_perez.dto.ProductSummary;
 import com.tecsup.edu.pe.exam_perez.entity.Product;
 import com.tecsup.edu.pe.exam_perez.entity.User;
 import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepositoryCustom;
+import com.tecsup.edu.pe.exam_perez.repository.ProductSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Servicio para gestión de productos
@@ -19,9 +42,47 @@ import java.util.Optional;
 @Transactional
 public class ProductService {
 
+    private static final String HOT_STOCK_MESSAGE =
+            "El stock de este producto se gestiona en memoria (venta flash); solo admite descuentos y devoluciones";
+
+    private static final String SEARCH_CURSOR_SEPARATOR = ";";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestionIndex suggestionIndex;
+
+    @Autowired
+    private ProductFacetRegistry facetRegistry;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private HotStockLedger hotStock;
+
+    @Autowired
+    private ProductJournal journal;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${products.pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${products.pagination.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${products.query.price-buckets:50,100,200,500,1000}")
+    private List<BigDecimal> priceBuckets;
+
     /**
      * Crear un nuevo producto
      */
@@ -43,7 +104,9 @@ public class ProductService {
         // Establecer quien creó el producto
         product.setCreatedBy(createdBy);
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        reindexAfterCommit(saved);
+        return saved;
     }
 
     /**
@@ -71,11 +134,14 @@ public class ProductService {
     }
 
     /**
-     * Obtener producto por ID
+     * Obtener producto por ID (caché de lectura; la BD solo se consulta en un fallo)
      */
-    @Transactional(readOnly = true)
-    public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<ProductDetail> getProductById(Long id) {
+        if (catalogSnapshot.isEnabled()) {
+            return catalogSnapshot.current().findById(id);
+        }
+        return productCache.get(id, key -> productRepository.findById(key).map(ProductDetail::from).orElse(null));
     }
 
     /**
@@ -85,6 +151,11 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
 
+        // Si el cliente envía la versión que leyó, se rechaza la edición sobre datos desactualizados
+        if (productDetails.getVersion() != null && !productDetails.getVersion().equals(product.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+
         // Validaciones
         if (productDetails.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
             throw new RuntimeException("El precio debe ser mayor a 0");
@@ -94,11 +165,19 @@ public class ProductService {
             throw new RuntimeException("El stock no puede ser negativo");
         }
 
+        // El stock de un producto caliente vive en memoria: la edición no puede reemplazarlo
+        boolean hot = hotStock.isHot(id);
+        if (hot && productDetails.getStock() != hotStock.available(id)) {
+            throw new RuntimeException(HOT_STOCK_MESSAGE);
+        }
+
         // Actualizar campos
         product.setName(productDetails.getName());
         product.setDescription(productDetails.getDescription());
         product.setPrice(productDetails.getPrice());
-        product.setStock(productDetails.getStock());
+        if (!hot) {
+            product.setStock(productDetails.getStock());
+        }
         product.setCategory(productDetails.getCategory());
         product.setBrand(productDetails.getBrand());
         product.setImageUrl(productDetails.getImageUrl());
@@ -107,7 +186,9 @@ public class ProductService {
             product.setActive(productDetails.getActive());
         }
 
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        reindexAfterCommit(saved);
+        return saved;
     }
 
     /**
@@ -118,17 +199,21 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
 
         product.setActive(false);
-        productRepository.save(product);
+        Product saved = productRepository.save(product);
+        // Sigue existiendo (inactivo): los índices lo ocultan y el diario guarda su instantánea
+        reindexAfterCommit(saved);
     }
 
     /**
      * Eliminar producto definitivamente
      */
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new RuntimeException("Producto no encontrado con ID: " + id);
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        productRepository.delete(product);
+        journal.recordDeletion(id, product.getVersion());
+        unindexAfterCommit(id);
+        AfterCommit.run(() -> hotStock.remove(id));
     }
 
     /**
@@ -140,11 +225,13 @@ public class ProductService {
     }
 
     /**
-     * Buscar productos por nombre o descripción
+     * Buscar productos activos por nombre, marca o descripción (índice en memoria, sin acceso a BD)
      */
-    @Transactional(readOnly = true)
-    public List<Product> searchProducts(String searchTerm) {
-        return productRepository.findByNameOrDescriptionContaining(searchTerm);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductSummary> searchProducts(String searchTerm) {
+        return searchIndex.search(searchTerm).stream()
+                .map(ProductSearchIndex.SearchHit::product)
+                .toList();
     }
 
     /**
@@ -172,19 +259,27 @@ public class ProductService {
     }
 
     /**
-     * Obtener todas las categorías
+     * Obtener todas las categorías con productos activos
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<String> getAllCategories() {
-        return productRepository.findDistinctCategories();
+        return facetRegistry.getCategories();
     }
 
     /**
-     * Obtener todas las marcas
+     * Obtener todas las marcas con productos activos
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<String> getAllBrands() {
-        return productRepository.findDistinctBrands();
+        return facetRegistry.getBrands();
+    }
+
+    /**
+     * Conteo de productos activos por categoría y marca
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ProductFacets getFacets() {
+        return facetRegistry.getFacets();
     }
 
     /**
@@ -198,23 +293,139 @@ public class ProductService {
             throw new RuntimeException("El stock no puede ser negativo");
         }
 
+        if (hotStock.isHot(id)) {
+            throw new RuntimeException(HOT_STOCK_MESSAGE);
+        }
+
         product.setStock(newStock);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        reindexAfterCommit(saved);
+        return saved;
     }
 
     /**
      * Reducir stock (para ventas)
+     * Un único UPDATE condicional decide el resultado: sin lectura previa ni bloqueo del
+     * producto, las ventas concurrentes no pierden actualizaciones ni dejan stock negativo.
+     * Los productos calientes se descuentan en memoria (HotStockLedger) sin tocar la BD.
      */
     public Product reduceStock(Long id, Integer quantity) {
-        Product product = productRepository.findById(id)
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("La cantidad debe ser mayor a 0");
+        }
+
+        if (hotStock.isHot(id)) {
+            if (hotStock.tryDecrement(id, quantity) < 0) {
+                throw new RuntimeException("Stock insuficiente. Disponible: " + hotStock.available(id) + ", Solicitado: " + quantity);
+            }
+            return withHotStock(productRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id)));
+        }
+
+        int updated = productRepository.decrementStock(id, quantity, LocalDateTime.now());
+        Product product = productRepository.findCurrentById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
 
-        if (product.getStock() < quantity) {
+        if (updated == 0) {
             throw new RuntimeException("Stock insuficiente. Disponible: " + product.getStock() + ", Solicitado: " + quantity);
         }
 
-        product.reduceStock(quantity);
-        return productRepository.save(product);
+        reindexAfterCommit(product);
+        return product;
+    }
+
+    /**
+     * Devolver stock descontado previamente (reserva liberada o vencida)
+     */
+    public Product restoreStock(Long id, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("La cantidad debe ser mayor a 0");
+        }
+
+        if (hotStock.isHot(id)) {
+            // El libro devuelve el stock al confirmar: si la transacción se revierte no reaparece
+            Product product = withHotStock(productRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id)));
+            product.setStock(product.getStock() + quantity);
+            hotStock.increment(id, quantity);
+            return product;
+        }
+
+        if (productRepository.adjustStock(id, quantity, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Producto no encontrado con ID: " + id);
+        }
+
+        Product product = productRepository.findCurrentById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        reindexAfterCommit(product);
+        return product;
+    }
+
+    /**
+     * Reducir el stock de varios productos en una sola transacción (checkout)
+     * Todo o nada: si una línea no tiene stock suficiente no se descuenta ninguna.
+     * Los UPDATE condicionales viajan en un único lote JDBC ordenado por ID, de modo que
+     * dos lotes concurrentes toman los bloqueos de fila en el mismo orden y no se bloquean mutuamente.
+     */
+    public List<Product> reduceStockBatch(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos un producto");
+        }
+
+        TreeMap<Long, Integer> sorted = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new RuntimeException("El ID del producto es obligatorio");
+            }
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new RuntimeException("La cantidad debe ser mayor a 0");
+            }
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+
+        // Las líneas de productos calientes se descuentan en memoria después de las de la BD
+        TreeMap<Long, Integer> hot = new TreeMap<>();
+        TreeMap<Long, Integer> cold = new TreeMap<>();
+        sorted.forEach((id, quantity) -> (hotStock.isHot(id) ? hot : cold).put(id, quantity));
+
+        int[] updated = cold.isEmpty() ? new int[0] : productRepository.decrementStockBatch(cold, LocalDateTime.now());
+
+        // Cualquier línea rechazada revierte la transacción completa, incluidas las ya aplicadas
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : cold.entrySet()) {
+            if (updated[index++] == 0) {
+                Long id = entry.getKey();
+                Product product = productRepository.findCurrentById(id)
+                        .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+                throw new RuntimeException("Stock insuficiente para el producto " + id + ". Disponible: " +
+                        product.getStock() + ", Solicitado: " + entry.getValue());
+            }
+        }
+
+        reduceHotStock(hot);
+
+        List<Product> products = productRepository.findCurrentByIdIn(sorted.keySet());
+        for (Product product : products) {
+            if (hot.containsKey(product.getId())) {
+                withHotStock(product);
+            } else {
+                reindexAfterCommit(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Aplicar en la BD los deltas netos acumulados en memoria (escritura diferida de HotStockLedger)
+     */
+    public void applyStockDeltas(Map<Long, Long> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        new TreeMap<>(deltas).forEach((id, delta) -> {
+            if (delta != 0) {
+                productRepository.adjustStock(id, Math.toIntExact(delta), now);
+            }
+        });
+        productRepository.findCurrentByIdIn(deltas.keySet()).forEach(this::reindexAfterCommit);
     }
 
     /**
@@ -226,18 +437,281 @@ public class ProductService {
     }
 
     /**
-     * Contar productos por categoría
+     * Contar productos activos por categoría
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long countProductsByCategory(String category) {
-        return productRepository.countByCategory(category);
+        return facetRegistry.countByCategory(category);
     }
 
     /**
      * Contar productos activos
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long countActiveProducts() {
-        return productRepository.countByActiveTrue();
+        return facetRegistry.countActive();
+    }
+
+    // Listados paginados por cursor (keyset)
+    // Sin transacción propia: en modo instantánea no se toca la BD; en modo BD cada consulta del
+    // repositorio abre su propia transacción de solo lectura
+
+    /**
+     * Página de productos activos
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductSummary> getActiveProductsPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        List<ProductSummary> rows = catalogSnapshot.isEnabled()
+                ? toSummaries(catalogSnapshot.current().activePage(afterId(cursor), pageSize + 1))
+                : productRepository.findActivePage(afterId(cursor), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize, product -> CursorPage.encodeCursor(null, product.id()));
+    }
+
+    /**
+     * Página de productos por categoría
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductSummary> getProductsByCategoryPage(String category, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        List<ProductSummary> rows = catalogSnapshot.isEnabled()
+                ? toSummaries(catalogSnapshot.current().categoryPage(category, afterId(cursor), pageSize + 1))
+                : productRepository.findByCategoryPage(category, afterId(cursor), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize, product -> CursorPage.encodeCursor(null, product.id()));
+    }
+
+    /**
+     * Página de productos en rango de precios, ordenados por precio
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductSummary> getProductsByPriceRangePage(BigDecimal minPrice, BigDecimal maxPrice,
+                                                                  String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        BigDecimal afterPrice = minPrice;
+        Long afterId = 0L;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorPage.decodeCursor(cursor);
+            afterPrice = new BigDecimal(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        List<ProductSummary> rows = catalogSnapshot.isEnabled()
+                ? toSummaries(catalogSnapshot.current().priceRangePage(maxPrice, afterPrice, afterId, pageSize + 1))
+                : productRepository.findByPriceRangePage(minPrice, maxPrice, afterPrice, afterId, Limit.of(pageSize + 1));
+        return toPage(rows, pageSize,
+                product -> CursorPage.encodeCursor(product.price().toPlainString(), product.id()));
+    }
+
+    /**
+     * Página de búsqueda por nombre, marca o descripción, ordenada por relevancia
+     * Con fuzzy se toleran errores de tipeo; el cursor guarda (puntaje, id) del último resultado
+     * y los idf de la primera página, con los que se puntúan las siguientes
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPage<ProductSummary> searchProductsPage(String searchTerm, boolean fuzzy, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        ProductSearchIndex.SearchPage result =
+                searchIndex.searchPage(searchTerm, fuzzy, searchPosition(cursor), pageSize + 1);
+
+        String idf = result.idf().stream().map(String::valueOf).collect(Collectors.joining(SEARCH_CURSOR_SEPARATOR));
+        CursorPage<ProductSearchIndex.SearchHit> page = toPage(result.hits(), pageSize,
+                hit -> CursorPage.encodeCursor(hit.score() + SEARCH_CURSOR_SEPARATOR + idf, hit.product().id()));
+        return new CursorPage<>(
+                page.getItems().stream().map(ProductSearchIndex.SearchHit::product).toList(),
+                page.getNextCursor());
+    }
+
+    /**
+     * Sugerencias de autocompletado por prefijo (trie en memoria, sin acceso a BD)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductSuggestion> suggest(String prefix, Integer limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Consulta facetada: todos los filtros se combinan en una sola consulta dinámica
+     * y los conteos por categoría, marca y rango de precio se calculan en la misma llamada.
+     * Son dos viajes a la BD: la página y un UNION ALL con todos los conteos. La página queda
+     * aparte porque sus filas tienen otra forma y llevan LIMIT, que en un UNION ALL obligaría
+     * a envolver la rama en una subconsulta solo para ahorrar un viaje.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductQueryResult queryProducts(ProductFilter filter, String cursor, Integer size) {
+        if (filter.minPrice() != null && filter.maxPrice() != null
+                && filter.minPrice().compareTo(filter.maxPrice()) > 0) {
+            throw new RuntimeException("El precio mínimo no puede ser mayor al precio máximo");
+        }
+
+        if (catalogSnapshot.isEnabled()) {
+            return queryProductsFromSnapshot(filter, cursor, size);
+        }
+
+        Specification<Product> active = ProductSpecifications.isActive();
+        Specification<Product> category = ProductSpecifications.categoryIn(filter.categories());
+        Specification<Product> brand = ProductSpecifications.brandIn(filter.brands());
+        Specification<Product> price = ProductSpecifications.priceBetween(filter.minPrice(), filter.maxPrice());
+        Specification<Product> stock = ProductSpecifications.inStock(filter.inStock());
+
+        int pageSize = resolvePageSize(size);
+        Specification<Product> pageFilter = allOf(active, category, brand, price, stock,
+                ProductSpecifications.idGreaterThan(afterId(cursor)));
+        CursorPage<ProductSummary> page = toPage(productRepository.findSummaries(pageFilter, pageSize + 1),
+                pageSize, product -> CursorPage.encodeCursor(null, product.id()));
+
+        // Cada faceta ignora su propio filtro para que el cliente vea las alternativas disponibles
+        ProductRepositoryCustom.FacetCounts facets = productRepository.countFacets(
+                allOf(active, brand, price, stock),
+                allOf(active, category, price, stock),
+                allOf(active, category, brand, stock),
+                priceBuckets);
+
+        return new ProductQueryResult(page.getItems(), facets.categories(), facets.brands(),
+                labelPriceBuckets(facets.priceBuckets()), page.getNextCursor());
+    }
+
+    /**
+     * Página de productos con stock bajo
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<ProductDetail> getProductsWithLowStockPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        List<ProductDetail> rows = catalogSnapshot.isEnabled()
+                ? catalogSnapshot.current().lowStockPage(afterId(cursor), pageSize + 1)
+                : productRepository.findLowStockPage(afterId(cursor), Limit.of(pageSize + 1)).stream()
+                        .map(ProductDetail::from)
+                        .toList();
+        return toPage(rows, pageSize, product -> CursorPage.encodeCursor(null, product.id()));
+    }
+
+    /**
+     * Consulta facetada resuelta contra la instantánea del catálogo
+     */
+    private ProductQueryResult queryProductsFromSnapshot(ProductFilter filter, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        ProductCatalogSnapshot.QueryResult result = catalogSnapshot.current()
+                .query(filter, afterId(cursor), pageSize + 1, priceBuckets);
+        CursorPage<ProductSummary> page = toPage(toSummaries(result.rows()), pageSize,
+                product -> CursorPage.encodeCursor(null, product.id()));
+        return new ProductQueryResult(page.getItems(), result.categories(), result.brands(),
+                labelPriceBuckets(result.priceBuckets()), page.getNextCursor());
+    }
+
+    private static List<ProductSummary> toSummaries(List<ProductDetail> products) {
+        return products.stream().map(ProductDetail::toSummary).toList();
+    }
+
+    /**
+     * Descontar en memoria todas las líneas calientes de un lote o ninguna
+     */
+    private void reduceHotStock(Map<Long, Integer> quantities) {
+        Long missing = hotStock.tryDecrementAll(quantities);
+        if (missing != null) {
+            throw new RuntimeException("Stock insuficiente para el producto " + missing + ". Disponible: " +
+                    hotStock.available(missing) + ", Solicitado: " + quantities.get(missing));
+        }
+    }
+
+    /**
+     * Copia desligada del contexto de persistencia con el stock vigente en memoria
+     * (el de la BD va por detrás hasta la próxima escritura diferida)
+     */
+    private Product withHotStock(Product product) {
+        entityManager.detach(product);
+        product.setStock((int) hotStock.available(product.getId()));
+        return product;
+    }
+
+    /**
+     * Actualizar la caché, los índices en memoria y el diario solo si la transacción confirma
+     */
+    private void reindexAfterCommit(Product product) {
+        journal.record(product);
+        AfterCommit.run(() -> {
+            productCache.invalidate(product.getId());
+            catalogSnapshot.apply(product);
+            searchIndex.index(product);
+            suggestionIndex.index(product);
+            facetRegistry.index(product);
+        });
+    }
+
+    private void unindexAfterCommit(Long id) {
+        AfterCommit.run(() -> {
+            productCache.invalidate(id);
+            catalogSnapshot.remove(id);
+            searchIndex.remove(id);
+            suggestionIndex.remove(id);
+            facetRegistry.remove(id);
+        });
+    }
+
+    @SafeVarargs
+    private static Specification<Product> allOf(Specification<Product>... specs) {
+        List<Specification<Product>> present = new ArrayList<>();
+        for (Specification<Product> spec : specs) {
+            if (spec != null) {
+                present.add(spec);
+            }
+        }
+        return Specification.allOf(present);
+    }
+
+    /**
+     * Etiquetar los conteos por rango: "0-50", "50-100", ..., "1000+"
+     */
+    private Map<String, Long> labelPriceBuckets(List<Long> counts) {
+        Map<String, Long> labeled = new LinkedHashMap<>();
+        for (int i = 0; i < counts.size(); i++) {
+            String from = i == 0 ? "0" : priceBuckets.get(i - 1).toPlainString();
+            String label = i < priceBuckets.size() ? from + "-" + priceBuckets.get(i).toPlainString() : from + "+";
+            labeled.put(label, counts.get(i));
+        }
+        return labeled;
+    }
+
+    /**
+     * Tamaño de página solicitado, acotado entre 1 y el máximo configurado
+     */
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    /**
+     * Posición de búsqueda guardada en el cursor: "puntaje;idf1;idf2;..." e ID
+     */
+    private static ProductSearchIndex.SearchPosition searchPosition(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] position = CursorPage.decodeCursor(cursor);
+        String[] values = position[0].split(SEARCH_CURSOR_SEPARATOR);
+        List<Double> idf = new ArrayList<>(values.length - 1);
+        for (int i = 1; i < values.length; i++) {
+            idf.add(Double.parseDouble(values[i]));
+        }
+        return new ProductSearchIndex.SearchPosition(
+                Double.parseDouble(values[0]), Long.parseLong(position[1]), idf);
+    }
+
+    private Long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        return Long.parseLong(CursorPage.decodeCursor(cursor)[1]);
+    }
+
+    /**
+     * Se consulta un elemento extra para saber si hay más páginas sin ejecutar un COUNT
+     */
+    private <T> CursorPage<T> toPage(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, cursorOf.apply(items.get(pageSize - 1)));
     }
 }
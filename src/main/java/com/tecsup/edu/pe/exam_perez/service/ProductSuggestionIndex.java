@@ -0,0 +1,385 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductSuggestion;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Autocompletado por prefijo sobre nombres de producto, marcas y categorías
+ * Las sugerencias se sirven desde un trie inmutable de palabras en el que cada nodo guarda ya
+ * sus mejores K completaciones: una consulta de una palabra solo recorre el prefijo, sin acceso a BD.
+ * Cada palabra del nombre es un punto de entrada ("dell" sugiere "Laptop Dell"); las consultas de
+ * varias palabras parten de los productos que contienen la primera y filtran por la frase.
+ * El orden es por nivel de stock (órdenes de magnitud) y luego alfabético; el puntaje que se
+ * devuelve es el stock vigente. Así una venta solo obliga a reconstruir el trie (copy-on-write,
+ * en segundo plano) si cambia de nivel; las lecturas nunca bloquean.
+ */
+@Component
+public class ProductSuggestionIndex {
+
+    private static final Comparator<ProductSuggestion> BY_SCORE =
+            Comparator.comparingLong(ProductSuggestion::score).reversed()
+                    .thenComparing(ProductSuggestion::text);
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> brandStock = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> categoryStock = new ConcurrentHashMap<>();
+    private final ProductVersions versions = new ProductVersions();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile Node root = Node.EMPTY;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${products.suggest.max-results:10}")
+    private int maxResults;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("products.suggest.entries", entries, Map::size).register(registry);
+    }
+
+    /**
+     * Construcción inicial: después de data.sql y de los CommandLineRunner (DataLoader)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void init() {
+        productRepository.findByActiveTrue().forEach(this::index);
+        rebuild();
+    }
+
+    /**
+     * Registrar un producto nuevo o modificado; los inactivos dejan de sugerirse
+     * Se ignora si ya se registró una versión posterior (callbacks afterCommit en desorden)
+     */
+    public void index(Product product) {
+        versions.update(product.getId(), product.getVersion(), () -> {
+            Entry next = Boolean.TRUE.equals(product.getActive()) ? Entry.of(product) : null;
+            Entry previous = next != null ? entries.put(product.getId(), next) : entries.remove(product.getId());
+            if (track(previous, next)) {
+                dirty.set(true);
+            }
+        });
+    }
+
+    /**
+     * Quitar un producto eliminado de las sugerencias
+     */
+    public void remove(Long productId) {
+        versions.remove(productId, () -> {
+            if (track(entries.remove(productId), null)) {
+                dirty.set(true);
+            }
+        });
+    }
+
+    /**
+     * Mejores completaciones para el prefijo, por nivel de stock y luego alfabéticamente
+     */
+    public List<ProductSuggestion> suggest(String prefix, Integer limit) {
+        String key = normalizePrefix(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        int count = limit == null ? maxResults : Math.max(1, Math.min(limit, maxResults));
+        Node trie = root;
+        int space = key.indexOf(' ');
+        List<ProductSuggestion> found = space < 0
+                ? List.of(find(trie, key).top)
+                : phrase(trie, key, key.substring(0, space));
+
+        List<ProductSuggestion> suggestions = new ArrayList<>(Math.min(count, found.size()));
+        for (ProductSuggestion suggestion : found) {
+            if (suggestions.size() == count) {
+                break;
+            }
+            ProductSuggestion current = withCurrentScore(suggestion);
+            if (current != null) {
+                suggestions.add(current);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Las ráfagas de cambios (por ejemplo, ventas que cambian de nivel) se agrupan en una sola reconstrucción
+     */
+    @Scheduled(fixedDelayString = "${products.suggest.rebuild-interval-ms:1000}")
+    public void rebuildIfDirty() {
+        if (dirty.get()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Construir un trie nuevo con el estado actual y publicarlo de forma atómica
+     */
+    synchronized void rebuild() {
+        // Los cambios que lleguen durante la construcción vuelven a marcarlo
+        dirty.set(false);
+        Set<String> brands = new HashSet<>();
+        Set<String> categories = new HashSet<>();
+        Builder builder = new Builder();
+
+        for (Map.Entry<Long, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            ProductSuggestion suggestion = new ProductSuggestion(
+                    entry.name, ProductSuggestion.Type.PRODUCT, mapEntry.getKey(), stockLevel(entry.stock));
+            for (String word : new LinkedHashSet<>(TextNormalizer.tokenize(entry.name))) {
+                builder.insert(word, suggestion);
+            }
+            if (entry.brand != null) {
+                brands.add(entry.brand);
+            }
+            if (entry.category != null) {
+                categories.add(entry.category);
+            }
+        }
+
+        brands.forEach(brand -> builder.insert(normalizeKey(brand), new ProductSuggestion(brand,
+                ProductSuggestion.Type.BRAND, null, stockLevel(brandStock.getOrDefault(brand, 0L)))));
+        categories.forEach(category -> builder.insert(normalizeKey(category), new ProductSuggestion(category,
+                ProductSuggestion.Type.CATEGORY, null, stockLevel(categoryStock.getOrDefault(category, 0L)))));
+
+        root = builder.freeze(maxResults);
+    }
+
+    /**
+     * Consulta de varias palabras: marcas y categorías que empiezan con la frase y productos
+     * que contienen la primera palabra completa y la frase a partir de un inicio de palabra.
+     * Recorre los productos con esa palabra en lugar de leer un top-K precalculado.
+     */
+    private List<ProductSuggestion> phrase(Node trie, String key, String firstWord) {
+        List<ProductSuggestion> candidates = new ArrayList<>(List.of(find(trie, key).top));
+        String phrase = " " + key;
+        for (ProductSuggestion suggestion : find(trie, firstWord).terminals) {
+            Entry entry = suggestion.type() == ProductSuggestion.Type.PRODUCT
+                    ? entries.get(suggestion.productId()) : null;
+            if (entry != null && entry.words.contains(phrase)) {
+                candidates.add(suggestion);
+            }
+        }
+        return candidates.stream().distinct().sorted(BY_SCORE).toList();
+    }
+
+    private static Node find(Node trie, String key) {
+        Node node = trie;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node != null ? node : Node.EMPTY;
+    }
+
+    /**
+     * La sugerencia con el stock vigente; null si el producto dejó de sugerirse desde la reconstrucción
+     */
+    private ProductSuggestion withCurrentScore(ProductSuggestion suggestion) {
+        long score;
+        switch (suggestion.type()) {
+            case PRODUCT -> {
+                Entry entry = entries.get(suggestion.productId());
+                if (entry == null) {
+                    return null;
+                }
+                score = entry.stock;
+            }
+            case BRAND -> score = brandStock.getOrDefault(suggestion.text(), 0L);
+            default -> score = categoryStock.getOrDefault(suggestion.text(), 0L);
+        }
+        return new ProductSuggestion(suggestion.text(), suggestion.type(), suggestion.productId(), score);
+    }
+
+    /**
+     * Actualizar el stock por marca y categoría; retorna si el cambio obliga a reconstruir el trie
+     * (nombre, marca, categoría o alta/baja, o un nivel de stock distinto)
+     */
+    private boolean track(Entry previous, Entry next) {
+        if (previous == null && next == null) {
+            return false;
+        }
+        boolean rebuild = previous == null || next == null
+                || !previous.name.equals(next.name)
+                || !Objects.equals(previous.brand, next.brand)
+                || !Objects.equals(previous.category, next.category)
+                || stockLevel(previous.stock) != stockLevel(next.stock);
+        rebuild |= moveStock(brandStock, previous, next, entry -> entry.brand);
+        rebuild |= moveStock(categoryStock, previous, next, entry -> entry.category);
+        return rebuild;
+    }
+
+    /**
+     * Pasar el stock del producto de su total anterior al nuevo (misma clave: solo la diferencia)
+     */
+    private static boolean moveStock(Map<String, Long> totals, Entry previous, Entry next,
+                                     Function<Entry, String> key) {
+        String previousKey = previous != null ? key.apply(previous) : null;
+        String nextKey = next != null ? key.apply(next) : null;
+        int previousStock = previous != null ? previous.stock : 0;
+        int nextStock = next != null ? next.stock : 0;
+        if (Objects.equals(previousKey, nextKey)) {
+            return addStock(totals, nextKey, nextStock - previousStock);
+        }
+        boolean removed = addStock(totals, previousKey, -previousStock);
+        return addStock(totals, nextKey, nextStock) || removed;
+    }
+
+    private static boolean addStock(Map<String, Long> totals, String key, long delta) {
+        if (key == null || delta == 0) {
+            return false;
+        }
+        long total = totals.merge(key, delta, Long::sum);
+        return stockLevel(total) != stockLevel(total - delta);
+    }
+
+    /**
+     * Orden de magnitud del stock: 0 sin stock, 1 de 1 a 9, 2 de 10 a 99, ...
+     */
+    private static int stockLevel(long stock) {
+        int level = 0;
+        for (long bound = 1; stock >= bound && level < 19; bound *= 10) {
+            level++;
+        }
+        return level;
+    }
+
+    private static String normalizeKey(String text) {
+        return String.join(" ", TextNormalizer.tokenize(text));
+    }
+
+    /**
+     * El prefijo conserva un espacio final para distinguir "mesa " (palabra completa) de "mesa"
+     */
+    private static String normalizePrefix(String prefix) {
+        String key = normalizeKey(prefix);
+        if (!key.isEmpty() && !Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            key += " ";
+        }
+        return key;
+    }
+
+    /**
+     * Datos mínimos de un producto para generar sugerencias
+     */
+    private static final class Entry {
+        private final String name;
+        private final String brand;
+        private final String category;
+        private final int stock;
+        // Palabras normalizadas del nombre entre espacios (" laptop dell xps "), para filtrar frases
+        private final String words;
+
+        private Entry(String name, String brand, String category, int stock) {
+            this.name = name;
+            this.brand = brand;
+            this.category = category;
+            this.stock = stock;
+            this.words = " " + normalizeKey(name) + " ";
+        }
+
+        private static Entry of(Product product) {
+            String brand = product.getBrand() != null && !product.getBrand().isBlank() ? product.getBrand() : null;
+            return new Entry(product.getName(), brand, product.getCategory(),
+                    product.getStock() != null ? product.getStock() : 0);
+        }
+    }
+
+    /**
+     * Nodo inmutable: hijos ordenados por carácter, sugerencias que terminan en él
+     * y mejores K sugerencias del subárbol
+     */
+    private static final class Node {
+        private static final ProductSuggestion[] NONE = new ProductSuggestion[0];
+        private static final Node EMPTY = new Node(new char[0], new Node[0], NONE, NONE);
+
+        private final char[] keys;
+        private final Node[] children;
+        private final ProductSuggestion[] terminals;
+        private final ProductSuggestion[] top;
+
+        private Node(char[] keys, Node[] children, ProductSuggestion[] terminals, ProductSuggestion[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.terminals = terminals;
+            this.top = top;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * Trie mutable usado solo durante la reconstrucción
+     */
+    private static final class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<ProductSuggestion> terminals = new ArrayList<>();
+
+        private void insert(String key, ProductSuggestion suggestion) {
+            if (key.isEmpty()) {
+                return;
+            }
+            Builder node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+            }
+            node.terminals.add(suggestion);
+        }
+
+        /**
+         * Convertir a nodos inmutables calculando el top-K de abajo hacia arriba
+         */
+        private Node freeze(int k) {
+            char[] keys = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            List<ProductSuggestion> candidates = new ArrayList<>(terminals);
+
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                frozen[i] = child.getValue().freeze(k);
+                candidates.addAll(Arrays.asList(frozen[i].top));
+                i++;
+            }
+
+            candidates.sort(BY_SCORE);
+            List<ProductSuggestion> top = new ArrayList<>(Math.min(k, candidates.size()));
+            Set<ProductSuggestion> seen = new HashSet<>();
+            for (ProductSuggestion candidate : candidates) {
+                if (top.size() == k) {
+                    break;
+                }
+                // Un mismo producto puede llegar por varias palabras de su nombre
+                if (seen.add(candidate)) {
+                    top.add(candidate);
+                }
+            }
+            ProductSuggestion[] exact = terminals.isEmpty() ? Node.NONE : terminals.toArray(Node.NONE);
+            return new Node(keys, frozen, exact, top.toArray(Node.NONE));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Última versión de cada producto aplicada a una estructura en memoria
+ * ProductService actualiza los índices desde callbacks afterCommit; con dos escrituras
+ * concurrentes del mismo producto esos callbacks pueden ejecutarse en orden inverso al de
+ * los commits. Una versión anterior a la ya aplicada se descarta, y un producto eliminado
+ * queda marcado para que un callback atrasado no lo vuelva a publicar (los IDs no se reutilizan).
+ */
+final class ProductVersions {
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecutar la actualización si la versión no es anterior a la ya aplicada; retorna si se ejecutó
+     * La comprobación y la actualización son atómicas para el mismo producto
+     */
+    boolean update(Long productId, Long version, Runnable update) {
+        boolean[] applied = new boolean[1];
+        versions.compute(productId, (id, current) -> {
+            if (current != null && version != null && version < current) {
+                return current;
+            }
+            update.run();
+            applied[0] = true;
+            return version != null ? version : current;
+        });
+        return applied[0];
+    }
+
+    /**
+     * Ejecutar la eliminación y descartar cualquier actualización posterior del producto
+     */
+    void remove(Long productId, Runnable removal) {
+        versions.compute(productId, (id, current) -> {
+            removal.run();
+            return DELETED;
+        });
+    }
+}
@@ -0,0 +1,234 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de movimientos de stock en segmentos de solo-escritura al final
+ * Cada registro (secuencia, producto, delta, CRC) se escribe bajo un bloqueo corto; la
+ * durabilidad se obtiene con awaitDurable, que agrupa en un único force() todos los registros
+ * escritos mientras otro hilo esperaba el disco (group commit). Un movimiento confirmado al
+ * cliente después de awaitDurable sobrevive a una caída.
+ * Al cortar se abre un segmento nuevo; los anteriores se borran cuando su contenido
+ * ya quedó aplicado en la base de datos.
+ */
+final class StockLedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 24;
+    private static final String PREFIX = "stock-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    // Escritura, protegida por el monitor de la instancia; los volátiles los lee quien fuerza
+    private volatile FileChannel channel;
+    private Path segment;
+    private volatile long sequence;
+
+    // Sincronización con el disco; orden de bloqueo: monitor de la instancia y luego syncLock
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition forced = syncLock.newCondition();
+    private long durable;
+    private boolean forcing;
+    private long forceCount;
+
+    /**
+     * Abrir un segmento nuevo que continúa la numeración después de lastSequence
+     */
+    StockLedgerJournal(Path directory, long lastSequence) throws IOException {
+        this.directory = directory;
+        this.sequence = lastSequence;
+        this.durable = lastSequence;
+        Files.createDirectories(directory);
+        openSegment();
+    }
+
+    /**
+     * Escribir un movimiento al final del segmento; retorna su número de secuencia
+     * No es durable hasta que awaitDurable cubra esa secuencia
+     */
+    synchronized long append(long productId, int delta) throws IOException {
+        long next = sequence + 1;
+        buffer.clear();
+        buffer.putLong(next).putLong(productId).putInt(delta);
+        crc.reset();
+        crc.update(buffer.array(), 0, RECORD_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        sequence = next;
+        return next;
+    }
+
+    /**
+     * Esperar a que todo lo escrito hasta la secuencia dada esté en disco
+     * Si otro hilo está forzando, se espera a que termine y, si aún falta, el siguiente
+     * force() cubre de una vez todos los movimientos acumulados mientras tanto
+     */
+    void awaitDurable(long target) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable < target) {
+                if (forcing) {
+                    forced.await();
+                    continue;
+                }
+                forcing = true;
+                long written = sequence;
+                FileChannel current = channel;
+                boolean done = false;
+                syncLock.unlock();
+                try {
+                    current.force(false);
+                    done = true;
+                } finally {
+                    syncLock.lock();
+                    forcing = false;
+                    if (done) {
+                        forceCount++;
+                        durable = Math.max(durable, written);
+                    }
+                    forced.signalAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Espera de escritura del diario de stock interrumpida");
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Cerrar el segmento actual y abrir uno nuevo; retorna la última secuencia del segmento cerrado
+     * El segmento cerrado queda forzado a disco, así ningún movimiento escrito espera sobre él
+     */
+    synchronized long roll() throws IOException {
+        closeSegment();
+        openSegment();
+        return sequence;
+    }
+
+    /**
+     * Borrar los segmentos cerrados cuyos registros no superan la secuencia dada
+     */
+    synchronized void deleteSegmentsUpTo(long lastSequence) throws IOException {
+        for (Path closed : segments(directory)) {
+            if (!closed.equals(segment) && firstSequence(closed) <= lastSequence) {
+                Files.deleteIfExists(closed);
+            }
+        }
+    }
+
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Cantidad de force() realizados; frente a los movimientos escritos mide cuánto agrupa el group commit
+     */
+    long getForceCount() {
+        syncLock.lock();
+        try {
+            return forceCount;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSegment();
+    }
+
+    /**
+     * Leer todos los registros válidos de los segmentos del directorio, en orden
+     * Un registro incompleto o con CRC inválido (escritura interrumpida) termina su segmento
+     */
+    static List<Entry> readEntries(Path directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+
+        CRC32C checksum = new CRC32C();
+        for (Path segment : segments(directory)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+            while (data.remaining() >= RECORD_SIZE) {
+                int start = data.position();
+                long sequence = data.getLong();
+                long productId = data.getLong();
+                int delta = data.getInt();
+                int stored = data.getInt();
+
+                checksum.reset();
+                checksum.update(data.array(), start, RECORD_SIZE - 4);
+                if (stored != (int) checksum.getValue()) {
+                    break;
+                }
+                entries.add(new Entry(sequence, productId, delta));
+            }
+        }
+        return entries;
+    }
+
+    // Se espera a que termine un force() en curso sobre el canal antes de cerrarlo
+    private void closeSegment() throws IOException {
+        syncLock.lock();
+        try {
+            while (forcing) {
+                forced.awaitUninterruptibly();
+            }
+            channel.force(false);
+            channel.close();
+            durable = Math.max(durable, sequence);
+            forced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // El segmento activo se nombra con la primera secuencia que contendrá; un archivo previo
+    // con ese nombre no tiene registros válidos posteriores a la secuencia actual y se descarta
+    private void openSegment() throws IOException {
+        segment = directory.resolve(String.format("%s%020d%s", PREFIX, sequence + 1, SUFFIX));
+        channel = FileChannel.open(segment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Movimiento registrado: delta negativo para descuentos, positivo para devoluciones
+     */
+    record Entry(long sequence, long productId, int delta) {
+    }
+}
@@ -0,0 +1,191 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.config.SchedulingConfig;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import com.tecsup.edu.pe.exam_perez.repository.StockReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Servicio de reservas de stock para carritos (apartar, confirmar al pagar, liberar)
+ * Al apartar se descuenta el stock del producto con el UPDATE condicional de reduceStock,
+ * así el stock disponible es siempre la columna products.stock, sin recorrer reservas.
+ * Los vencimientos de las reservas vigentes se llevan en memoria en una rueda de
+ * temporización (O(1) por reserva, sin consultar la BD); la tabla stock_reservations
+ * permite reconstruir la rueda al arrancar. Cada cambio de estado se registra además en el
+ * diario de productos, que con BD en memoria repone las reservas vigentes junto con el stock.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final HashedTimingWheel<UUID> expirations;
+
+    private final long tickMillis;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductJournal journal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${products.reservations.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    private Counter expiredCounter;
+
+    public StockReservationService(@Value("${products.reservations.tick-ms:1000}") long tickMillis,
+                                   @Value("${products.reservations.wheel-size:512}") int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.expirations = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("products.reservations.active", expirations, HashedTimingWheel::size).register(registry);
+        expiredCounter = Counter.builder("products.reservations.expired").register(registry);
+    }
+
+    /**
+     * Reconstruir los vencimientos de las reservas vigentes (las ya vencidas se liberan en el próximo tick)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        int count = 0;
+        for (StockReservation reservation : reservationRepository.findByStatus(StockReservation.Status.HELD)) {
+            expirations.schedule(reservation.getId(), toMillis(reservation.getExpiresAt()));
+            count++;
+        }
+        if (count > 0) {
+            log.info("Reservas de stock recuperadas: {}", count);
+        }
+    }
+
+    /**
+     * Apartar stock de un producto por el tiempo configurado
+     */
+    @Transactional
+    public StockReservation hold(Long productId, Integer quantity, String username) {
+        productService.reduceStock(productId, quantity);
+
+        StockReservation reservation = reservationRepository.save(new StockReservation(
+                productId, quantity, username, LocalDateTime.now().plusSeconds(ttlSeconds)));
+        journal.recordReservation(reservation);
+
+        UUID id = reservation.getId();
+        long deadline = toMillis(reservation.getExpiresAt());
+        AfterCommit.run(() -> expirations.schedule(id, deadline));
+        return reservation;
+    }
+
+    /**
+     * Confirmar una reserva vigente (pago realizado): el stock queda descontado definitivamente
+     */
+    @Transactional
+    public StockReservation confirm(UUID id, String username) {
+        StockReservation reservation = findOwned(id, username);
+        if (!reservation.isHeld() || !reservation.getExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("La reserva ya no está vigente");
+        }
+
+        reservation.setStatus(StockReservation.Status.CONFIRMED);
+        StockReservation saved = reservationRepository.saveAndFlush(reservation);
+        journal.recordReservation(saved);
+        AfterCommit.run(() -> expirations.cancel(id));
+        return saved;
+    }
+
+    /**
+     * Liberar una reserva vigente devolviendo su cantidad al producto
+     */
+    @Transactional
+    public StockReservation release(UUID id, String username) {
+        StockReservation reservation = findOwned(id, username);
+        if (!reservation.isHeld()) {
+            throw new RuntimeException("La reserva ya no está vigente");
+        }
+
+        StockReservation saved = giveBack(reservation, StockReservation.Status.RELEASED);
+        AfterCommit.run(() -> expirations.cancel(id));
+        return saved;
+    }
+
+    /**
+     * Liberar las reservas cuyo vencimiento llegó en la rueda
+     */
+    @Scheduled(fixedDelayString = "${products.reservations.tick-ms:1000}",
+               scheduler = SchedulingConfig.STOCK_SCHEDULER)
+    public void expireDue() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long now = System.currentTimeMillis();
+        for (UUID id : expirations.advance(now)) {
+            try {
+                transaction.executeWithoutResult(status -> reservationRepository.findById(id)
+                        .filter(StockReservation::isHeld)
+                        .ifPresent(reservation -> {
+                            giveBack(reservation, StockReservation.Status.EXPIRED);
+                            expiredCounter.increment();
+                        }));
+            } catch (OptimisticLockingFailureException e) {
+                // Se confirmó o liberó en paralelo: esa transición prevalece
+                log.debug("Reserva {} modificada durante su vencimiento", id);
+            } catch (RuntimeException e) {
+                // La reserva ya salió de la rueda: se reintenta en el próximo tick
+                log.warn("No se pudo liberar la reserva vencida {}, se reintenta: {}", id, e.getMessage());
+                expirations.schedule(id, now + tickMillis);
+            }
+        }
+    }
+
+    /**
+     * Cantidad de reservas vigentes en memoria
+     */
+    public int getActiveCount() {
+        return expirations.size();
+    }
+
+    private StockReservation giveBack(StockReservation reservation, StockReservation.Status status) {
+        reservation.setStatus(status);
+        StockReservation saved = reservationRepository.saveAndFlush(reservation);
+        journal.recordReservation(saved);
+        productService.restoreStock(reservation.getProductId(), reservation.getQuantity());
+        return saved;
+    }
+
+    private StockReservation findOwned(UUID id, String username) {
+        StockReservation reservation = reservationRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + id));
+        if (!reservation.getUsername().equals(username)) {
+            throw new RuntimeException("La reserva pertenece a otro usuario");
+        }
+        return reservation;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,121 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.config.VerifiedToken;
+import com.tecsup.edu.pe.exam_perez.entity.RevokedToken;
+import com.tecsup.edu.pe.exam_perez.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de revocación de tokens JWT (logout)
+ * Las revocaciones se persisten en la tabla revoked_tokens y se mantienen en memoria:
+ * un filtro de Bloom descarta en O(1) la gran mayoría de tokens no revocados y
+ * un conjunto exacto confirma los posibles positivos. No hay acceso a BD por request.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final ConcurrentHashMap<String, Long> revokedExpirations = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("jwt.revocation.size", revokedExpirations, Map::size).register(registry);
+    }
+
+    @PostConstruct
+    void init() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.findByExpiresAtAfter(now)
+                .forEach(revoked -> revokedExpirations.put(revoked.getJti(), toMillis(revoked.getExpiresAt())));
+        rebuildBloomFilter();
+    }
+
+    /**
+     * Verificar si un token fue revocado (sin acceso a BD)
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        String jti = token.getId();
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        return revokedExpirations.containsKey(jti);
+    }
+
+    /**
+     * Revocar un token hasta su expiración
+     */
+    @Transactional
+    public void revoke(VerifiedToken token) {
+        String jti = token.getId();
+        if (jti == null) {
+            throw new RuntimeException("El token no admite revocación");
+        }
+
+        if (token.isExpired() || revokedExpirations.containsKey(jti)) {
+            return;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(token.getExpirationMillis()), ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(jti, token.getSubject(), expiresAt));
+
+        AfterCommit.run(() -> {
+            // Primero el conjunto exacto y luego el filtro: rebuildBloomFilter depende de este orden
+            revokedExpirations.put(jti, token.getExpirationMillis());
+            bloomFilter.put(jti);
+        });
+    }
+
+    /**
+     * Eliminar revocaciones de tokens ya expirados y reconstruir el filtro de Bloom
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        boolean removed = revokedExpirations.values().removeIf(expiration -> expiration <= now);
+        revokedTokenRepository.deleteExpired(LocalDateTime.now());
+
+        if (removed) {
+            rebuildBloomFilter();
+        }
+    }
+
+    /**
+     * Un filtro de Bloom no admite borrados: se construye uno nuevo con las entradas vigentes
+     */
+    private void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(
+                Math.max(expectedEntries, revokedExpirations.size() * 2), falsePositiveRate);
+        revokedExpirations.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+
+        // Segunda pasada para revocaciones que escribieron en el filtro anterior durante la reconstrucción
+        revokedExpirations.keySet().forEach(rebuilt::put);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,11 +1,18 @@
 package com.tecsup.edu.pe.exam_perez.service;
 
 import com.tecsup.edu.pe.exam_perez.entity.User;
+import com.tecsup.edu.pe.exam_perez.exception.PasswordHashingRejectedException;
 import com.tecsup.edu.pe.exam_perez.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +31,23 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserTokenStateRegistry userTokenStateRegistry;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Hash de referencia para igualar el tiempo de respuesta cuando el usuario no existe
+    private String dummyPasswordHash;
+
+    @PostConstruct
+    void init() {
+        dummyPasswordHash = passwordEncoder.encode("dummy-password");
+    }
+
     /**
      * Crear un nuevo usuario
      */
@@ -49,7 +73,9 @@ public class UserService {
             user.setActive(true);
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        invalidateUserCachesAfterCommit(savedUser.getUsername());
+        return savedUser;
     }
 
     /**
@@ -76,6 +102,14 @@ public class UserService {
         return userRepository.findById(id);
     }
 
+    /**
+     * Obtener una referencia al usuario sin cargarlo (útil para claves foráneas)
+     */
+    @Transactional(readOnly = true)
+    public User getUserReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     /**
      * Obtener usuario por username
      */
@@ -92,6 +126,66 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Autenticar por username o email con una sola consulta y una sola verificación de contraseña
+     * La lectura es de solo lectura; si el costo del hash almacenado es menor que el configurado,
+     * se re-hashea de forma transparente en una transacción de escritura aparte
+     */
+    @Transactional(readOnly = true)
+    public User authenticate(String usernameOrEmail, String rawPassword) {
+        List<User> candidates = userRepository.findByUsernameOrEmail(usernameOrEmail);
+
+        // Si el valor coincide con el username de un usuario y el email de otro, prevalece el username
+        User user = candidates.stream()
+                .filter(candidate -> candidate.getUsername().equals(usernameOrEmail))
+                .findFirst()
+                .orElse(candidates.isEmpty() ? null : candidates.get(0));
+
+        if (user == null) {
+            passwordEncoder.matches(rawPassword, dummyPasswordHash);
+            throw new BadCredentialsException("Credenciales incorrectas");
+        }
+
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            throw new BadCredentialsException("Credenciales incorrectas");
+        }
+
+        if (!Boolean.TRUE.equals(user.getActive())) {
+            throw new DisabledException("Usuario deshabilitado");
+        }
+
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            rehashPassword(user, rawPassword);
+        }
+
+        return user;
+    }
+
+    /**
+     * Re-hashear la contraseña con el costo actual; si el pool está saturado se reintenta en el próximo login
+     * El hash se calcula antes de abrir la transacción de escritura, que solo dura el UPDATE
+     */
+    private void rehashPassword(User user, String rawPassword) {
+        String previousHash = user.getPassword();
+        String newHash;
+        try {
+            newHash = passwordEncoder.encode(rawPassword);
+        } catch (PasswordHashingRejectedException e) {
+            // El login ya fue validado: no se bloquea por no poder actualizar el hash
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> userRepository.findById(user.getId())
+                // Si la contraseña cambió entretanto, no se pisa con el hash de la anterior
+                .filter(current -> previousHash.equals(current.getPassword()))
+                .ifPresent(current -> {
+                    current.setPassword(newHash);
+                    invalidateUserCachesAfterCommit(current.getUsername());
+                }));
+    }
+
     /**
      * Actualizar usuario
      */
@@ -110,26 +204,39 @@ public class UserService {
             throw new RuntimeException("El email ya está registrado");
         }
 
+        String previousUsername = user.getUsername();
+        boolean credentialsChanged = false;
+
         // Actualizar campos
         user.setUsername(userDetails.getUsername());
         user.setEmail(userDetails.getEmail());
         user.setFirstName(userDetails.getFirstName());
         user.setLastName(userDetails.getLastName());
 
-        if (userDetails.getRole() != null) {
+        if (userDetails.getRole() != null && userDetails.getRole() != user.getRole()) {
             user.setRole(userDetails.getRole());
+            credentialsChanged = true;
         }
 
-        if (userDetails.getActive() != null) {
+        if (userDetails.getActive() != null && !userDetails.getActive().equals(user.getActive())) {
             user.setActive(userDetails.getActive());
+            credentialsChanged = true;
         }
 
         // Solo actualizar contraseña si se proporciona una nueva
         if (userDetails.getPassword() != null && !userDetails.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+            credentialsChanged = true;
+        }
+
+        if (credentialsChanged || !previousUsername.equals(user.getUsername())) {
+            user.incrementTokenVersion();
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        invalidateUserCachesAfterCommit(previousUsername);
+        invalidateUserCachesAfterCommit(savedUser.getUsername());
+        return savedUser;
     }
 
     /**
@@ -140,17 +247,20 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + id));
 
         user.setActive(false);
+        user.incrementTokenVersion();
         userRepository.save(user);
+        invalidateUserCachesAfterCommit(user.getUsername());
     }
 
     /**
      * Eliminar usuario definitivamente
      */
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("Usuario no encontrado con ID: " + id);
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + id));
+
+        userRepository.delete(user);
+        invalidateUserCachesAfterCommit(user.getUsername());
     }
 
     /**
@@ -183,7 +293,9 @@ public class UserService {
 
         // Actualizar contraseña
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.incrementTokenVersion();
         userRepository.save(user);
+        invalidateUserCachesAfterCommit(user.getUsername());
     }
 
     /**
@@ -201,4 +313,14 @@ public class UserService {
     public long countActiveUsers() {
         return userRepository.countByActiveTrue();
     }
+
+    /**
+     * Descartar el estado en memoria del usuario (tokens y UserDetails) una vez confirmada la transacción
+     */
+    private void invalidateUserCachesAfterCommit(String username) {
+        AfterCommit.run(() -> {
+            userTokenStateRegistry.invalidate(username);
+            userDetailsService.evict(username);
+        });
+    }
 }
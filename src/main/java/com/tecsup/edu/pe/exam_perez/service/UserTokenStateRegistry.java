@@ -0,0 +1,65 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro en memoria del estado de credenciales de cada usuario (id, versión, activo)
+ * Permite rechazar tokens emitidos antes de una desactivación o cambio de contraseña
+ * sin consultar la base de datos en cada request: solo se carga el usuario en el primer acceso
+ * y tras cada invalidación realizada por UserService.
+ */
+@Service
+public class UserTokenStateRegistry {
+
+    private static final State MISSING = new State(null, -1, false);
+
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Verificar si un token con el id y versión indicados sigue vigente para el usuario
+     */
+    public boolean isCurrent(String username, Long userId, int tokenVersion) {
+        State state = states.computeIfAbsent(username, this::load);
+        return state.active
+                && state.userId != null
+                && state.userId.equals(userId)
+                && state.tokenVersion == tokenVersion;
+    }
+
+    /**
+     * Descartar el estado en memoria de un usuario; se recarga en el próximo acceso
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            states.remove(username);
+        }
+    }
+
+    private State load(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> new State(
+                        user.getId(),
+                        user.getTokenVersion() != null ? user.getTokenVersion() : 0,
+                        Boolean.TRUE.equals(user.getActive())))
+                .orElse(MISSING);
+    }
+
+    private static final class State {
+        private final Long userId;
+        private final int tokenVersion;
+        private final boolean active;
+
+        private State(Long userId, int tokenVersion, boolean active) {
+            this.userId = userId;
+            this.tokenVersion = tokenVersion;
+            this.active = active;
+        }
+    }
+}
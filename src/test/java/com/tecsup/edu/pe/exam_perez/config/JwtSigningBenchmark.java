@@ -0,0 +1,67 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark manual de firma y verificación de tokens: HS256 frente a ES256 (y RS256 como referencia)
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.config.JwtSigningBenchmark [segundos por medición]
+ * Usa los mismos claims que JwtUtil.generateToken(User) y un parser precalculado por clave,
+ * como JwtUtil; la búsqueda del "kid" en JwtKeyRing es un acceso a un mapa y no se mide.
+ */
+public class JwtSigningBenchmark {
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+
+        System.out.printf("%-6s %14s %14s%n", "alg", "firmas/s", "verificaciones/s");
+        run(SignatureAlgorithm.HS256, Keys.secretKeyFor(SignatureAlgorithm.HS256), null, seconds);
+        KeyPair ec = Keys.keyPairFor(SignatureAlgorithm.ES256);
+        run(SignatureAlgorithm.ES256, ec.getPrivate(), ec.getPublic(), seconds);
+        KeyPair rsa = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        run(SignatureAlgorithm.RS256, rsa.getPrivate(), rsa.getPublic(), seconds);
+    }
+
+    private static void run(SignatureAlgorithm algorithm, Key signingKey, Key verificationKey, long seconds) {
+        JwtParser parser = Jwts.parserBuilder()
+                .setSigningKey(verificationKey != null ? verificationKey : signingKey)
+                .build();
+        Supplier<String> sign = () -> Jwts.builder()
+                .setSubject("tester")
+                .claim(JwtUtil.CLAIM_USER_ID, 1L)
+                .claim(JwtUtil.CLAIM_ROLE, "USER")
+                .claim(JwtUtil.CLAIM_ACTIVE, true)
+                .claim(JwtUtil.CLAIM_TOKEN_VERSION, 0)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(signingKey, algorithm)
+                .compact();
+        String token = sign.get();
+
+        // Calentamiento con la misma duración que la medición
+        throughput(() -> parser.parseClaimsJws(sign.get()), seconds);
+        double signs = throughput(sign::get, seconds);
+        double verifications = throughput(() -> parser.parseClaimsJws(token), seconds);
+        System.out.printf("%-6s %,14.0f %,14.0f%n", algorithm.getValue(), signs, verifications);
+    }
+
+    private static double throughput(Runnable operation, long seconds) {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        long count = 0;
+        while (System.nanoTime() < deadline) {
+            operation.run();
+            count++;
+        }
+        return count / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Benchmark manual del CPU por request autenticado que cuesta verificar el JWT
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.config.JwtVerificationBenchmark [requests/s]
+ * Compara el camino anterior del filtro (extractUsername + validateToken: tres parseos, cada uno
+ * con un parser y una clave HMAC nuevos) con verifyToken (un parseo con parser y clave
+ * precalculados) y con un acierto de VerifiedTokenCache.
+ */
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "clave-de-benchmark-de-al-menos-256-bits-para-hs256";
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) {
+        int requestsPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "keyRing", new JwtKeyRing());
+        jwtUtil.init();
+        String token = jwtUtil.generateToken(User.withUsername("tester").password("x").roles("USER").build());
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 10_000);
+        ReflectionTestUtils.setField(cache, "jwtUtil", jwtUtil);
+
+        double legacy = cpuMicrosPerRequest(() -> {
+            for (int i = 0; i < 3; i++) {
+                Jwts.parserBuilder()
+                        .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                        .build()
+                        .parseClaimsJws(token)
+                        .getBody();
+            }
+        });
+        double verifyOnce = cpuMicrosPerRequest(() -> jwtUtil.verifyToken(token));
+        double cached = cpuMicrosPerRequest(() -> cache.verify(token));
+
+        System.out.printf("CPU por request y núcleos ocupados a %,d requests/s%n", requestsPerSecond);
+        print("tres parseos", legacy, requestsPerSecond);
+        print("verifyToken", verifyOnce, requestsPerSecond);
+        print("caché", cached, requestsPerSecond);
+    }
+
+    private static double cpuMicrosPerRequest(Runnable request) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            request.run();
+        }
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            request.run();
+        }
+        return (threads.getCurrentThreadCpuTime() - start) / 1_000.0 / ITERATIONS;
+    }
+
+    private static void print(String label, double micros, int requestsPerSecond) {
+        System.out.printf("%-14s %8.2f µs  %6.3f núcleos%n", label, micros, micros * requestsPerSecond / 1_000_000);
+    }
+}
@@ -0,0 +1,81 @@
+package com.tecsup.edu.pe.exam_perez.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que cada token se verifica una sola vez mientras no expire,
+ * que la entrada vence con el "exp" del token y que el tamaño queda acotado
+ */
+class VerifiedTokenCacheTests {
+
+    @Test
+    void tokensAreVerifiedOnceUntilTheyExpire() throws InterruptedException {
+        CountingJwtUtil jwtUtil = new CountingJwtUtil();
+        VerifiedTokenCache cache = cache(jwtUtil, 100);
+        jwtUtil.expirations.put("largo", System.currentTimeMillis() + 60_000);
+        jwtUtil.expirations.put("corto", System.currentTimeMillis() + 1_000);
+
+        VerifiedToken first = cache.verify("largo");
+        assertSame(first, cache.verify("largo"));
+        cache.verify("corto");
+        cache.verify("corto");
+        assertEquals(2, jwtUtil.verifications.get());
+
+        Thread.sleep(1_200);
+        assertThrows(JwtException.class, () -> cache.verify("corto"));
+        assertSame(first, cache.verify("largo"));
+        assertEquals(3, jwtUtil.verifications.get());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        CountingJwtUtil jwtUtil = new CountingJwtUtil();
+        VerifiedTokenCache cache = cache(jwtUtil, 10);
+        for (int i = 0; i < 1000; i++) {
+            jwtUtil.expirations.put("token-" + i, System.currentTimeMillis() + 60_000);
+            cache.verify("token-" + i);
+        }
+        ReflectionTestUtils.invokeMethod(ReflectionTestUtils.getField(cache, "entries"), "cleanUp");
+        assertTrue(cache.size() <= 10, "tamaño: " + cache.size());
+    }
+
+    private static VerifiedTokenCache cache(JwtUtil jwtUtil, long maxSize) {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, maxSize);
+        ReflectionTestUtils.setField(cache, "jwtUtil", jwtUtil);
+        return cache;
+    }
+
+    /**
+     * Verificación simulada: cuenta las llamadas y rechaza los tokens vencidos
+     */
+    private static final class CountingJwtUtil extends JwtUtil {
+        private final Map<String, Long> expirations = new HashMap<>();
+        private final AtomicInteger verifications = new AtomicInteger();
+
+        @Override
+        public VerifiedToken verifyToken(String token) {
+            verifications.incrementAndGet();
+            long expiration = expirations.get(token);
+            if (expiration <= System.currentTimeMillis()) {
+                throw new JwtException("Token expirado");
+            }
+            Claims claims = Jwts.claims().setSubject(token);
+            claims.setExpiration(new Date(expiration));
+            return new VerifiedToken(claims);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica que los conteos de facetas salen de una sola sentencia SQL
+ * y coinciden con contarlos en memoria sobre todos los productos
+ */
+@SpringBootTest(properties = "jwt.revocation.purge-interval-ms=3600000")
+class ProductFacetCountsTests {
+
+    private static final List<BigDecimal> BOUNDS = List.of(new BigDecimal("50"), new BigDecimal("500"));
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void facetsAreCountedInOneStatement() {
+        List<Product> active = productRepository.findAll().stream().filter(Product::getActive).toList();
+        Map<String, Long> categories = new TreeMap<>();
+        Map<String, Long> brands = new TreeMap<>();
+        Long[] buckets = {0L, 0L, 0L};
+        for (Product product : active) {
+            categories.merge(product.getCategory(), 1L, Long::sum);
+            if (product.getBrand() != null) {
+                brands.merge(product.getBrand(), 1L, Long::sum);
+            }
+            int bucket = 0;
+            while (bucket < BOUNDS.size() && product.getPrice().compareTo(BOUNDS.get(bucket)) >= 0) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ProductRepositoryCustom.FacetCounts facets = productRepository.countFacets(
+                ProductSpecifications.isActive(), ProductSpecifications.isActive(),
+                ProductSpecifications.isActive(), BOUNDS);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(categories, facets.categories());
+        assertEquals(brands, facets.brands());
+        assertEquals(List.of(buckets), facets.priceBuckets());
+    }
+}
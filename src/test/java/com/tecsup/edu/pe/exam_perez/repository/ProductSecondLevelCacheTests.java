@@ -0,0 +1,134 @@
+package com.tecsup.edu.pe.exam_perez.repository;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que las lecturas repetidas se sirven desde el caché de segundo nivel
+ * y el caché de consultas de Hibernate sin emitir SQL
+ * Cada llamada al repositorio fuera de una transacción usa una sesión nueva,
+ * por lo que el caché de primer nivel no interviene.
+ */
+@SpringBootTest(properties = "jwt.revocation.purge-interval-ms=3600000")
+class ProductSecondLevelCacheTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void repeatedFindByIdIssuesNoSql() {
+        Long id = productRepository.findActiveProductsWithStock().get(0).getId();
+        productRepository.findById(id);
+
+        statistics.clear();
+        productRepository.findById(id);
+        productRepository.findById(id);
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getDomainDataRegionStatistics("products").getHitCount());
+    }
+
+    @Test
+    void repeatedCachedQueriesIssueNoSql() {
+        List<String> categories = productRepository.findDistinctCategories();
+        String category = categories.get(0);
+        productRepository.findByCategoryAndActiveTrue(category);
+        productRepository.findActiveProductsWithStock();
+
+        statistics.clear();
+        assertEquals(categories, productRepository.findDistinctCategories());
+        assertFalse(productRepository.findByCategoryAndActiveTrue(category).isEmpty());
+        assertFalse(productRepository.findActiveProductsWithStock().isEmpty());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(3, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void writeInvalidatesCachedQueries() {
+        productRepository.findDistinctCategories();
+        Product product = productRepository.findActiveProductsWithStock().get(0);
+
+        product.setStock(product.getStock() + 1);
+        productRepository.save(product);
+
+        statistics.clear();
+        productRepository.findDistinctCategories();
+
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void stockUpdateEvictsOnlyThatProduct() {
+        List<Product> products = productRepository.findActiveProductsWithStock();
+        Long updated = products.get(0).getId();
+        Long untouched = products.get(1).getId();
+        int stock = productRepository.findById(updated).orElseThrow().getStock();
+        productRepository.findById(untouched);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertEquals(1, productRepository.decrementStock(updated, 1, LocalDateTime.now())));
+
+        Cache cache = entityManagerFactory.getCache();
+        assertFalse(cache.contains(Product.class, updated));
+        assertTrue(cache.contains(Product.class, untouched));
+        assertEquals(stock - 1, productRepository.findById(updated).orElseThrow().getStock());
+    }
+
+    @Test
+    void stockUpdateIsEvictedBeforeLaterAfterCommitCallbacks() {
+        Long id = productRepository.findActiveProductsWithStock().get(0).getId();
+        Cache cache = entityManagerFactory.getCache();
+        AtomicBoolean cachedAfterCommit = new AtomicBoolean(true);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(1, productRepository.decrementStock(id, 1, LocalDateTime.now()));
+            // Una lectura concurrente vuelve a cachear la fila anterior antes del commit
+            CompletableFuture.runAsync(() -> productRepository.findById(id)).join();
+            assertTrue(cache.contains(Product.class, id));
+            // Como la invalidación de ProductCache, se registra después del UPDATE
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cachedAfterCommit.set(cache.contains(Product.class, id));
+                }
+            });
+        });
+
+        assertFalse(cachedAfterCommit.get());
+    }
+}
@@ -0,0 +1,104 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark manual de lecturas concurrentes sobre ProductCatalogSnapshot
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.service.CatalogSnapshotBenchmark [productos] [segundos]
+ * Cada operación hace una lectura por ID, una página de activos y una página por categoría.
+ * Mide además el costo de publicar una escritura (parcheo de la instantánea).
+ */
+public class CatalogSnapshotBenchmark {
+
+    private static final int CATEGORIES = 50;
+    private static final int PAGE_SIZE = 50;
+
+    public static void main(String[] args) throws InterruptedException {
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        ProductCatalogSnapshot.Snapshot snapshot = ProductCatalogSnapshot.Snapshot.of(products(productCount));
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("productos=%d, núcleos=%d%n", productCount, cores);
+
+        // Calentamiento para que el JIT compile las rutas de lectura
+        run(snapshot, productCount, cores, 1);
+
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            double opsPerSecond = run(snapshot, productCount, threads, seconds);
+            System.out.printf("hilos=%2d  %,14.0f ops/s  %,12.0f ops/s por hilo%n",
+                    threads, opsPerSecond, opsPerSecond / threads);
+        }
+
+        int writes = 2_000;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) {
+            ProductDetail previous = snapshot.findById(1L + random.nextInt(productCount)).orElseThrow();
+            snapshot = snapshot.replace(previous, withPrice(previous, BigDecimal.valueOf(random.nextInt(1, 100_000), 2)));
+        }
+        System.out.printf("escritura: %,.1f µs por publicación%n", (System.nanoTime() - start) / 1e3 / writes);
+    }
+
+    private static ProductDetail withPrice(ProductDetail product, BigDecimal price) {
+        return new ProductDetail(product.id(), product.name(), product.description(), price, product.stock(),
+                product.category(), product.brand(), product.active(), product.imageUrl(), product.createdAt(),
+                product.updatedAt(), product.version() + 1, product.inStock());
+    }
+
+    private static double run(ProductCatalogSnapshot.Snapshot snapshot, int productCount,
+                              int threads, int seconds) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long sink = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 64; i++) {
+                        long id = 1 + random.nextInt(productCount);
+                        sink += snapshot.findById(id).map(ProductDetail::stock).orElse(0);
+                        sink += snapshot.activePage(id, PAGE_SIZE).size();
+                        sink += snapshot.categoryPage("categoria-" + random.nextInt(CATEGORIES), id, PAGE_SIZE).size();
+                    }
+                    count += 64;
+                }
+                operations.add(count);
+                if (sink == 42) {
+                    System.out.print("");
+                }
+                done.countDown();
+            });
+            worker.start();
+        }
+
+        done.await();
+        return operations.sum() / (double) seconds;
+    }
+
+    private static List<ProductDetail> products(int count) {
+        List<ProductDetail> products = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long id = 1; id <= count; id++) {
+            int stock = random.nextInt(100);
+            products.add(new ProductDetail(id, "Producto " + id, "Descripción " + id,
+                    BigDecimal.valueOf(random.nextInt(1, 100_000), 2), stock,
+                    "categoria-" + (id % CATEGORIES), "marca-" + (id % 200), true, null, now, now, 0L, stock > 0));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,59 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica los vencimientos de la rueda de temporización, incluidos los de varias vueltas
+ */
+class HashedTimingWheelTests {
+
+    private static final long TICK = 100;
+
+    @Test
+    void expiresEachKeyOnceAtItsDeadline() {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+        wheel.schedule(1, 250);
+        wheel.schedule(2, 1_000);
+        // Más de una vuelta (8 ranuras x 100 ms): comparte ranura con vencimientos anteriores
+        wheel.schedule(3, 2_500);
+
+        assertTrue(wheel.advance(200).isEmpty());
+        assertEquals(List.of(1), wheel.advance(300));
+        assertEquals(List.of(2), wheel.advance(1_000));
+        assertTrue(wheel.advance(2_400).isEmpty());
+        assertEquals(List.of(3), wheel.advance(2_500));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledKeysNeverExpire() {
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+        wheel.schedule(1, 500);
+        wheel.schedule(2, 500);
+
+        assertTrue(wheel.cancel(1));
+
+        assertEquals(List.of(2), wheel.advance(500));
+    }
+
+    @Test
+    void catchesUpAfterLongPause() {
+        int holds = 50_000;
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(TICK, 512, 0);
+        for (int i = 0; i < holds; i++) {
+            wheel.schedule(i, (long) i * 7);
+        }
+
+        Set<Integer> expired = new HashSet<>(wheel.advance((long) holds * 7));
+
+        assertEquals(holds, expired.size());
+        assertEquals(0, wheel.size());
+    }
+}
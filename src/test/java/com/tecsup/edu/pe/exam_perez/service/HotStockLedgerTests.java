@@ -0,0 +1,163 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica el stock en memoria de productos calientes: sin sobreventa bajo concurrencia
+ * y con la BD alcanzando el mismo valor tras la escritura diferida
+ */
+@SpringBootTest(properties = {
+        "jwt.revocation.purge-interval-ms=3600000",
+        "products.hot-stock.enabled=true",
+        "products.hot-stock.flush-interval-ms=50",
+        "products.hot-stock.journal-dir=" + HotStockLedgerTests.JOURNAL_DIRECTORY
+})
+class HotStockLedgerTests {
+
+    static final String JOURNAL_DIRECTORY = "target/hot-stock-test";
+    private static final int INITIAL_STOCK = StockContention.INITIAL_STOCK;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HotStockLedger ledger;
+
+    @Autowired
+    private HotStockFlusher flusher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = StockContention.saveProduct(productRepository, "Producto en venta flash");
+        flusher.flag(product.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.remove(product.getId());
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void concurrentReductionsNeverOversell() throws Exception {
+        StockContention.Result result = StockContention.run(() -> productService.reduceStock(product.getId(), 1));
+
+        assertEquals(INITIAL_STOCK, result.sold());
+        assertEquals(0, ledger.available(product.getId()));
+        assertEquals(0, awaitDatabaseStock(0));
+    }
+
+    @Test
+    void absoluteStockUpdatesAreRejected() {
+        assertThrows(RuntimeException.class, () -> productService.updateStock(product.getId(), 5));
+    }
+
+    @Test
+    void restoredStockReachesDatabase() throws InterruptedException {
+        productService.reduceStock(product.getId(), 10);
+        productService.restoreStock(product.getId(), 4);
+
+        assertEquals(INITIAL_STOCK - 6, ledger.available(product.getId()));
+        assertEquals(INITIAL_STOCK - 6, awaitDatabaseStock(INITIAL_STOCK - 6));
+    }
+
+    @Test
+    void rolledBackReductionIsNeverJournaled() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            productService.reduceStock(product.getId(), 5);
+            throw new IllegalStateException("Falla posterior al descuento");
+        }));
+        assertEquals(INITIAL_STOCK, ledger.available(product.getId()));
+
+        // Si el -5 hubiera llegado al diario, la BD terminaría en INITIAL_STOCK - 6
+        productService.reduceStock(product.getId(), 1);
+        assertEquals(INITIAL_STOCK - 1, awaitDatabaseStock(INITIAL_STOCK - 1));
+        assertTrue(StockLedgerJournal.readEntries(Path.of(JOURNAL_DIRECTORY)).stream()
+                .noneMatch(entry -> entry.productId() == product.getId() && entry.delta() == -5));
+    }
+
+    @Test
+    void reductionIsDurableBeforeCommitAndAnnulledIfCommitFails() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            productService.reduceStockBatch(Map.of(product.getId(), 7));
+            // Se registra después del libro: su beforeCommit corre con el -7 ya en disco
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    assertTrue(journaled(-7));
+                    throw new IllegalStateException("Falla del commit");
+                }
+            });
+        }));
+
+        assertEquals(INITIAL_STOCK, ledger.available(product.getId()));
+
+        // Sin el +7 que lo anula, la BD terminaría en INITIAL_STOCK - 8
+        productService.reduceStock(product.getId(), 1);
+        assertEquals(INITIAL_STOCK - 1, awaitDatabaseStock(INITIAL_STOCK - 1));
+    }
+
+    @Test
+    void productRemovedConcurrentlyIsNotFound() {
+        Long other = StockContention.saveProduct(productRepository, "Producto eliminado en paralelo").getId();
+        flusher.flag(other);
+        ledger.remove(other);
+        try {
+            assertThrows(RuntimeException.class, () -> ledger.tryDecrement(other, 1));
+            assertThrows(RuntimeException.class,
+                    () -> ledger.tryDecrementAll(new TreeMap<>(Map.of(product.getId(), 3, other, 1))));
+            assertEquals(INITIAL_STOCK, ledger.available(product.getId()));
+        } finally {
+            productRepository.deleteById(other);
+        }
+    }
+
+    private boolean journaled(int delta) {
+        try {
+            return StockLedgerJournal.readEntries(Path.of(JOURNAL_DIRECTORY)).stream()
+                    .anyMatch(entry -> entry.productId() == product.getId() && entry.delta() == delta);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int awaitDatabaseStock(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        int stock;
+        while ((stock = productRepository.findCurrentById(product.getId()).orElseThrow().getStock()) != expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        return stock;
+    }
+}
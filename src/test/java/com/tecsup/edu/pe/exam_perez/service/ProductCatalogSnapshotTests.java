@@ -0,0 +1,97 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que el parcheo incremental de la instantánea equivale a reconstruirla
+ * y que las versiones atrasadas no reemplazan a las ya publicadas
+ */
+class ProductCatalogSnapshotTests {
+
+    private static final int PRODUCTS = 200;
+    private static final int ALL = 1000;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("1000000");
+
+    @Test
+    void incrementalUpdatesMatchFullRebuild() {
+        Random random = new Random(42);
+        Map<Long, ProductDetail> products = new HashMap<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.put(id, detail(id, 1, random));
+        }
+        ProductCatalogSnapshot.Snapshot snapshot = ProductCatalogSnapshot.Snapshot.of(products.values());
+
+        for (int i = 0; i < 2000; i++) {
+            long id = 1 + random.nextInt(PRODUCTS + 20);
+            ProductDetail previous = products.get(id);
+            ProductDetail next = random.nextInt(10) == 0 ? null : detail(id, i + 2, random);
+            if (next == null) {
+                products.remove(id);
+            } else {
+                products.put(id, next);
+            }
+            snapshot = snapshot.replace(previous, next);
+
+            if (i % 100 == 0) {
+                assertSameContent(ProductCatalogSnapshot.Snapshot.of(products.values()), snapshot);
+            }
+        }
+        assertSameContent(ProductCatalogSnapshot.Snapshot.of(products.values()), snapshot);
+    }
+
+    @Test
+    void staleVersionsAndDeletedProductsAreIgnored() {
+        ProductCatalogSnapshot catalog = new ProductCatalogSnapshot();
+        ReflectionTestUtils.setField(catalog, "enabled", true);
+
+        catalog.apply(product(1L, 2L, 7));
+        catalog.apply(product(1L, 1L, 9));
+        assertEquals(7, catalog.current().findById(1L).orElseThrow().stock());
+
+        catalog.remove(1L);
+        catalog.apply(product(1L, 3L, 5));
+        assertTrue(catalog.current().findById(1L).isEmpty());
+    }
+
+    private static void assertSameContent(ProductCatalogSnapshot.Snapshot expected,
+                                          ProductCatalogSnapshot.Snapshot actual) {
+        assertEquals(expected.activePage(0, ALL), actual.activePage(0, ALL));
+        assertEquals(expected.lowStockPage(0, ALL), actual.lowStockPage(0, ALL));
+        assertEquals(expected.priceRangePage(MAX_PRICE, BigDecimal.valueOf(-1), 0, ALL),
+                actual.priceRangePage(MAX_PRICE, BigDecimal.valueOf(-1), 0, ALL));
+        for (int category = 0; category < 5; category++) {
+            assertEquals(expected.categoryPage("categoria-" + category, 0, ALL),
+                    actual.categoryPage("categoria-" + category, 0, ALL));
+        }
+        for (long id = 1; id <= PRODUCTS + 20; id++) {
+            assertEquals(expected.findById(id), actual.findById(id));
+        }
+    }
+
+    private static ProductDetail detail(long id, long version, Random random) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        int stock = random.nextInt(20);
+        return new ProductDetail(id, "Producto " + id, null, BigDecimal.valueOf(random.nextInt(1, 500), 1), stock,
+                "categoria-" + random.nextInt(5), null, random.nextInt(4) != 0, null, now, now, version, stock > 0);
+    }
+
+    private static Product product(Long id, Long version, int stock) {
+        Product product = new Product("Producto " + id, null, new BigDecimal("10.00"), stock, "Pruebas");
+        product.setId(id);
+        product.setVersion(version);
+        product.setActive(true);
+        return product;
+    }
+}
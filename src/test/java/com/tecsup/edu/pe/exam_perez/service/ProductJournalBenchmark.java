@@ -0,0 +1,98 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark manual del diario de productos
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.service.ProductJournalBenchmark [directorio] [segundos] [registros]
+ * Mide registros/s agregados con espera a disco (group commit) según la cantidad de hilos,
+ * y el tiempo de lectura y reconstrucción de un diario con [registros] instantáneas.
+ */
+public class ProductJournalBenchmark {
+
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+    private static final int PRODUCTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "target/journal-benchmark");
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int records = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        Files.createDirectories(directory);
+
+        System.out.printf("directorio=%s, núcleos=%d%n", directory.toAbsolutePath(),
+                Runtime.getRuntime().availableProcessors());
+
+        for (int threads = 1; threads <= 64; threads *= 4) {
+            Result result = append(directory.resolve("append.journal"), threads, seconds);
+            System.out.printf("hilos=%2d  %,12.0f registros/s  %,10.0f force/s  %5.1f registros por force%n",
+                    threads, result.records() / (double) seconds, result.syncs() / (double) seconds,
+                    result.records() / (double) Math.max(1, result.syncs()));
+        }
+
+        Path file = directory.resolve("replay.journal");
+        Files.deleteIfExists(file);
+        long start = System.nanoTime();
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            for (int i = 0; i < records; i++) {
+                journal.append(ProductJournal.encodeProduct(
+                        ProductJournalTests.product(i % PRODUCTS, i / PRODUCTS, i % 100)));
+            }
+        }
+        double writeMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("escritura sin espera por registro: %,d registros en %,.0f ms (%,.0f registros/s)%n",
+                records, writeMillis, records / (writeMillis / 1000));
+
+        // Calentamiento y luego la medición de la reconstrucción
+        ProductJournal.Replay.read(file, REGION_SIZE);
+        start = System.nanoTime();
+        ProductJournal.Replay replay = ProductJournal.Replay.read(file, REGION_SIZE);
+        double replayMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("reconstrucción: %,d registros -> %,d productos en %,.0f ms (%,.0f ms por millón)%n",
+                replay.getRecords(), replay.getProducts().size(), replayMillis,
+                replayMillis * 1_000_000 / replay.getRecords());
+    }
+
+    private static Result append(Path file, int threads, int seconds) throws Exception {
+        Files.deleteIfExists(file);
+        LongAdder appended = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(new Thread(() -> {
+                    try {
+                        long i = 0;
+                        while (System.nanoTime() < deadline) {
+                            byte[] record = ProductJournal.encodeProduct(
+                                    ProductJournalTests.product(thread * 100_000L + i % PRODUCTS, i, 10));
+                            journal.awaitDurable(journal.append(record));
+                            appended.increment();
+                            i++;
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            done.await();
+            return new Result(appended.sum(), journal.getForceCount());
+        }
+    }
+
+    private record Result(long records, long syncs) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import com.tecsup.edu.pe.exam_perez.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que al arrancar la tabla products se reconstruye desde el diario
+ * y que las mutaciones posteriores quedan registradas
+ */
+@SpringBootTest(properties = {
+        "jwt.revocation.purge-interval-ms=3600000",
+        "spring.datasource.url=jdbc:h2:mem:journaldb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "products.journal.enabled=true",
+        "products.journal.path=" + ProductJournalReplayTests.JOURNAL,
+        "products.journal.region-bytes=65536"
+})
+class ProductJournalReplayTests {
+
+    static final String JOURNAL = "target/product-journal-test/products.journal";
+    private static final long RESTORED_ID = 500;
+    private static final long REACTIVATED_ID = 600;
+    private static final long DELETED_ID = 700;
+    private static final UUID HELD = UUID.randomUUID();
+    private static final UUID RELEASED = UUID.randomUUID();
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    // El diario debe existir antes de que arranque el contexto
+    @BeforeAll
+    static void writeJournal() throws IOException {
+        Path file = Path.of(JOURNAL);
+        Files.deleteIfExists(file);
+        try (MappedJournal journal = new MappedJournal(file, 65536)) {
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.product(1, 4, 777)));
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.product(RESTORED_ID, 2, 5)));
+            journal.append(ProductJournal.encodeDeletion(2L, 0L));
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.product(REACTIVATED_ID, 1, 8)));
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.withActive(
+                    ProductJournalTests.product(REACTIVATED_ID, 2, 8), false)));
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.product(REACTIVATED_ID, 3, 8)));
+            journal.append(ProductJournal.encodeProduct(ProductJournalTests.product(DELETED_ID, 1, 1)));
+            journal.append(ProductJournal.encodeDeletion(DELETED_ID, 1L));
+            journal.append(ProductJournal.encodeReservation(
+                    ProductJournalTests.reservation(HELD, 0, StockReservation.Status.HELD)));
+            journal.append(ProductJournal.encodeReservation(
+                    ProductJournalTests.reservation(RELEASED, 0, StockReservation.Status.HELD)));
+            journal.append(ProductJournal.encodeReservation(
+                    ProductJournalTests.reservation(RELEASED, 1, StockReservation.Status.RELEASED)));
+        }
+    }
+
+    @Test
+    void productsAreRestoredAndNewMutationsJournaled() throws IOException {
+        Product restored = productRepository.findById(RESTORED_ID).orElseThrow();
+        assertEquals(5, restored.getStock());
+        assertEquals(2L, restored.getVersion());
+        assertEquals(777, productRepository.findById(1L).orElseThrow().getStock());
+        assertFalse(productRepository.existsById(2L));
+        assertFalse(productRepository.existsById(DELETED_ID));
+        assertTrue(productRepository.findById(REACTIVATED_ID).orElseThrow().getActive());
+
+        // La identidad continúa después del mayor ID registrado, aunque ese producto esté eliminado
+        Product created = productService.createProduct(new Product(
+                "Producto nuevo", "Tras la recuperación", new BigDecimal("5.00"), 3, "Pruebas"), null);
+        assertTrue(created.getId() > DELETED_ID);
+
+        productService.reduceStock(RESTORED_ID, 2);
+
+        ProductJournal.Replay replay = ProductJournal.Replay.read(Path.of(JOURNAL), 65536);
+        assertEquals(3, replay.getProducts().get(RESTORED_ID).stock());
+        assertEquals(3, replay.getProducts().get(created.getId()).stock());
+        assertTrue(replay.getDeleted().containsKey(2L));
+    }
+
+    @Test
+    void heldReservationsAreRestoredAndNewOnesJournaled() throws IOException {
+        // Sin la reserva, su cantidad quedaría descontada del stock para siempre
+        StockReservation held = reservationRepository.findById(HELD).orElseThrow();
+        assertTrue(held.isHeld());
+        assertEquals(3, held.getQuantity());
+        assertFalse(reservationRepository.existsById(RELEASED));
+
+        StockReservation hold = reservationService.hold(RESTORED_ID, 1, "tester");
+        assertTrue(ProductJournal.Replay.read(Path.of(JOURNAL), 65536).getHeldReservations().stream()
+                .anyMatch(reservation -> reservation.getId().equals(hold.getId())));
+
+        reservationService.release(hold.getId(), "tester");
+        assertTrue(ProductJournal.Replay.read(Path.of(JOURNAL), 65536).getHeldReservations().stream()
+                .noneMatch(reservation -> reservation.getId().equals(hold.getId())));
+    }
+
+    @Test
+    void deactivateThenReactivateSurvivesReplay() throws IOException {
+        Product product = productService.createProduct(new Product(
+                "Producto intermitente", "Se desactiva y reactiva", new BigDecimal("7.00"), 4, "Pruebas"), null);
+        Long id = product.getId();
+
+        productService.deactivateProduct(id);
+        ProductJournal.Replay replay = ProductJournal.Replay.read(Path.of(JOURNAL), 65536);
+        assertFalse(replay.getProducts().get(id).active());
+        assertFalse(replay.getDeleted().containsKey(id));
+
+        Product details = productRepository.findById(id).orElseThrow();
+        details.setActive(true);
+        productService.updateProduct(id, details);
+
+        replay = ProductJournal.Replay.read(Path.of(JOURNAL), 65536);
+        assertTrue(replay.getProducts().get(id).active());
+        assertFalse(replay.getDeleted().containsKey(id));
+
+        productService.deleteProduct(id);
+        assertTrue(ProductJournal.Replay.read(Path.of(JOURNAL), 65536).getDeleted().containsKey(id));
+    }
+}
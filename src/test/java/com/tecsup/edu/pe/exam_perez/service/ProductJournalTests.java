@@ -0,0 +1,187 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductDetail;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifica el diario de productos: registros que cruzan regiones, escrituras concurrentes
+ * con group commit, cola interrumpida y reconstrucción con la versión más alta
+ */
+class ProductJournalTests {
+
+    private static final long REGION_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentAppendsSurviveReopenAcrossRegions() throws Exception {
+        Path file = directory.resolve("products.journal");
+        int threads = 4;
+        int perThread = 200;
+
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        long id = thread * 1000L + i;
+                        journal.awaitDurable(journal.append(ProductJournal.encodeProduct(product(id, 1, i))));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        // Reabrir continúa al final y no pisa lo escrito
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            journal.append(ProductJournal.encodeDeletion(0L, 1L));
+        }
+
+        ProductJournal.Replay replay = ProductJournal.Replay.read(file, REGION_SIZE);
+        assertEquals(threads * perThread + 1, replay.getRecords());
+        assertEquals(threads * perThread - 1, replay.getProducts().size());
+        assertEquals(Map.of(0L, 1L), replay.getDeleted());
+        assertEquals(199, replay.getProducts().get(3199L).stock());
+    }
+
+    @Test
+    void highestVersionWinsAndCheckpointsKeepMaximum() throws IOException {
+        Path file = directory.resolve("products.journal");
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            journal.append(ProductJournal.encodeProduct(product(1, 3, 30)));
+            journal.append(ProductJournal.encodeProduct(product(1, 2, 20)));
+            journal.append(ProductJournal.encodeCheckpoint("hot-stock", 9));
+            journal.append(ProductJournal.encodeCheckpoint("hot-stock", 7));
+        }
+
+        ProductJournal.Replay replay = ProductJournal.Replay.read(file, REGION_SIZE);
+
+        assertEquals(30, replay.getProducts().get(1L).stock());
+        assertEquals(3L, replay.getProducts().get(1L).version());
+        assertEquals(Map.of("hot-stock", 9L), replay.getCheckpoints());
+    }
+
+    @Test
+    void deactivationIsNotADeletionAndDeletionsUseVersions() throws IOException {
+        Path file = directory.resolve("products.journal");
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            // Producto 1: desactivado y luego reactivado
+            journal.append(ProductJournal.encodeProduct(product(1, 1, 10)));
+            journal.append(ProductJournal.encodeProduct(withActive(product(1, 2, 10), false)));
+            journal.append(ProductJournal.encodeProduct(product(1, 3, 10)));
+            // Producto 2: la eliminación gana a su última instantánea aunque se escriba antes
+            journal.append(ProductJournal.encodeDeletion(2L, 4L));
+            journal.append(ProductJournal.encodeProduct(product(2, 4, 20)));
+            journal.append(ProductJournal.encodeProduct(product(2, 3, 20)));
+        }
+
+        ProductJournal.Replay replay = ProductJournal.Replay.read(file, REGION_SIZE);
+
+        assertEquals(Set.of(1L), replay.getProducts().keySet());
+        assertEquals(true, replay.getProducts().get(1L).active());
+        assertEquals(Map.of(2L, 4L), replay.getDeleted());
+        assertEquals(2L, replay.getMaxId());
+    }
+
+    @Test
+    void onlyReservationsStillHeldAreRestored() throws IOException {
+        Path file = directory.resolve("products.journal");
+        UUID confirmed = UUID.randomUUID();
+        UUID held = UUID.randomUUID();
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            // La confirmación gana aunque se escriba antes que la reserva
+            journal.append(ProductJournal.encodeReservation(reservation(confirmed, 1, StockReservation.Status.CONFIRMED)));
+            journal.append(ProductJournal.encodeReservation(reservation(confirmed, 0, StockReservation.Status.HELD)));
+            journal.append(ProductJournal.encodeReservation(reservation(held, 0, StockReservation.Status.HELD)));
+        }
+
+        List<StockReservation> restored = ProductJournal.Replay.read(file, REGION_SIZE).getHeldReservations();
+
+        assertEquals(1, restored.size());
+        assertEquals(held, restored.get(0).getId());
+        assertEquals(3, restored.get(0).getQuantity());
+        assertEquals("tester", restored.get(0).getUsername());
+    }
+
+    @Test
+    void enabledJournalRejectsRecordsUntilOpened() {
+        ProductJournal journal = new ProductJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+
+        assertThrows(IllegalStateException.class, () -> journal.recordCheckpoint("hot-stock", 1));
+    }
+
+    @Test
+    void tornTailIsIgnoredAndOverwritten() throws IOException {
+        Path file = directory.resolve("products.journal");
+        long end;
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            journal.append(ProductJournal.encodeProduct(product(1, 1, 10)));
+            end = journal.append(ProductJournal.encodeProduct(product(2, 1, 20)));
+        }
+        // Corromper el último registro como si la escritura se hubiera interrumpido
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(end - 1);
+            int last = raf.read();
+            raf.seek(end - 1);
+            raf.write(last ^ 0xFF);
+        }
+
+        ProductJournal.Replay replay = ProductJournal.Replay.read(file, REGION_SIZE);
+        assertEquals(1, replay.getRecords());
+        assertFalse(replay.getProducts().containsKey(2L));
+
+        try (MappedJournal journal = new MappedJournal(file, REGION_SIZE)) {
+            journal.append(ProductJournal.encodeProduct(product(3, 1, 30)));
+        }
+        assertEquals(Set.of(1L, 3L), ProductJournal.Replay.read(file, REGION_SIZE).getProducts().keySet());
+    }
+
+    static ProductDetail withActive(ProductDetail product, boolean active) {
+        return new ProductDetail(product.id(), product.name(), product.description(), product.price(),
+                product.stock(), product.category(), product.brand(), active, product.imageUrl(),
+                product.createdAt(), product.updatedAt(), product.version(), product.inStock());
+    }
+
+    static StockReservation reservation(UUID id, long version, StockReservation.Status status) {
+        StockReservation reservation = new StockReservation(1L, 3, "tester", LocalDateTime.now().plusHours(1));
+        reservation.setId(id);
+        reservation.setVersion(version);
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    static ProductDetail product(long id, long version, int stock) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return new ProductDetail(id, "Producto " + id, "Descripción", new BigDecimal("19.90"), stock,
+                "Pruebas", null, true, null, now, now, version, stock > 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.edu.pe.exam_perez.ExamPerezApplication;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark manual de memoria asignada por respuesta de un listado de productos
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.service.ProductListingAllocationBenchmark [tamaño de página] [respuestas]
+ * Compara la consulta anterior de /api/products (entidades Product completas) con la proyección
+ * actual a ProductSummary; ambas en una transacción de solo lectura y serializadas a JSON
+ * con el ObjectMapper de la aplicación, como las escribe el controlador.
+ */
+public class ProductListingAllocationBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final String ENTITY_PAGE =
+            "SELECT p FROM Product p WHERE p.active = true AND p.id > :afterId ORDER BY p.id";
+
+    public static void main(String[] args) throws Exception {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int responses = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExamPerezApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "spring.jpa.show-sql=false")
+                .run()) {
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            TransactionTemplate readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            readOnly.setReadOnly(true);
+
+            for (int i = 0; i < pageSize; i++) {
+                productRepository.save(new Product("Producto de listado " + i,
+                        "Descripción de un producto de listado con algo de texto, como en el catálogo real",
+                        new BigDecimal("19.90"), 10, "Listados"));
+            }
+
+            Supplier<List<?>> entities = () -> readOnly.execute(status ->
+                    EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+                            .createQuery(ENTITY_PAGE, Product.class)
+                            .setParameter("afterId", 0L)
+                            .setMaxResults(pageSize)
+                            .getResultList());
+            Supplier<List<?>> summaries = () -> readOnly.execute(status ->
+                    productRepository.findActivePage(0L, Limit.of(pageSize)));
+
+            System.out.printf("página de %d productos, %d respuestas%n", pageSize, responses);
+            System.out.printf("%-14s %,10.0f bytes por respuesta%n", "entidades",
+                    bytesPerResponse(entities, objectMapper, responses));
+            System.out.printf("%-14s %,10.0f bytes por respuesta%n", "ProductSummary",
+                    bytesPerResponse(summaries, objectMapper, responses));
+        }
+    }
+
+    /**
+     * Bytes asignados por el hilo actual para consultar y serializar una página
+     */
+    private static double bytesPerResponse(Supplier<List<?>> page, ObjectMapper objectMapper, int responses)
+            throws JsonProcessingException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) {
+            objectMapper.writeValueAsBytes(page.get());
+        }
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < responses; i++) {
+            objectMapper.writeValueAsBytes(page.get());
+        }
+        return (threads.getThreadAllocatedBytes(thread) - start) / (double) responses;
+    }
+}
@@ -0,0 +1,83 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que la paginación de búsqueda devuelve lo mismo que la búsqueda completa
+ * y que un cambio de idf entre páginas no repite ni salta productos
+ */
+class ProductSearchIndexTests {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Test
+    void pagesMatchFullSearch() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 20; id++) {
+            index.index(product(id, "Laptop " + (id % 3 == 0 ? "gamer laptop" : "oficina"), "Marca " + id % 4));
+        }
+
+        List<Long> paged = new ArrayList<>();
+        ProductSearchIndex.SearchPosition after = null;
+        do {
+            ProductSearchIndex.SearchPage page = index.searchPage("laptop marca", false, after, PAGE_SIZE);
+            page.hits().forEach(hit -> paged.add(hit.product().id()));
+            after = next(page);
+        } while (after != null);
+
+        assertEquals(index.search("laptop marca").stream().map(hit -> hit.product().id()).toList(), paged);
+    }
+
+    @Test
+    void idfChangesBetweenPagesDoNotRepeatOrSkipProducts() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (long id = 1; id <= 12; id++) {
+            index.index(product(id, id % 2 == 0 ? "Laptop oficina" : "Laptop gamer", "Marca " + id % 3));
+        }
+
+        Set<Long> seen = new HashSet<>();
+        ProductSearchIndex.SearchPosition after = null;
+        long nextId = 100;
+        do {
+            ProductSearchIndex.SearchPage page = index.searchPage("laptop gamer", false, after, PAGE_SIZE);
+            for (ProductSearchIndex.SearchHit hit : page.hits()) {
+                assertTrue(seen.add(hit.product().id()), "repetido: " + hit.product().id());
+            }
+            after = next(page);
+            // Cambian la cantidad de documentos y la frecuencia de "gamer" entre página y página
+            index.index(product(nextId++, "Silla gamer", "Otra"));
+            index.index(product(nextId++, "Escritorio", "Otra"));
+        } while (after != null);
+
+        for (long id = 1; id <= 12; id += 2) {
+            assertTrue(seen.contains(id), "saltado: " + id);
+        }
+    }
+
+    private static ProductSearchIndex.SearchPosition next(ProductSearchIndex.SearchPage page) {
+        if (page.hits().size() < PAGE_SIZE) {
+            return null;
+        }
+        ProductSearchIndex.SearchHit last = page.hits().get(page.hits().size() - 1);
+        return new ProductSearchIndex.SearchPosition(last.score(), last.product().id(), page.idf());
+    }
+
+    private static Product product(long id, String name, String brand) {
+        Product product = new Product(name, null, new BigDecimal("10.00"), 5, "Pruebas");
+        product.setId(id);
+        product.setVersion(1L);
+        product.setActive(true);
+        product.setBrand(brand);
+        return product;
+    }
+}
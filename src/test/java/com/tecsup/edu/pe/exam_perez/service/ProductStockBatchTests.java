@@ -0,0 +1,100 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifica el descuento de stock en lote (todo o nada) y que los productos retornados
+ * reflejan el stock nuevo aunque ya estuvieran cargados en la transacción
+ */
+@SpringBootTest(properties = "jwt.revocation.purge-interval-ms=3600000")
+class ProductStockBatchTests {
+
+    private static final int LINES = 10;
+    private static final int INITIAL_STOCK = 10_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < LINES; i++) {
+            products.add(productRepository.save(new Product(
+                    "Producto de lote " + i, "Checkout", new BigDecimal("5.00"), INITIAL_STOCK, "Pruebas")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        products.forEach(product -> productRepository.deleteById(product.getId()));
+        products.clear();
+    }
+
+    @Test
+    void batchReducesEveryLine() {
+        List<Product> updated = productService.reduceStockBatch(checkout(2));
+
+        assertEquals(LINES, updated.size());
+        for (Product product : products) {
+            assertEquals(INITIAL_STOCK - 2, stockOf(product));
+        }
+    }
+
+    @Test
+    void insufficientLineRollsBackWholeBatch() {
+        Map<Long, Integer> quantities = checkout(1);
+        quantities.put(products.get(LINES - 1).getId(), INITIAL_STOCK + 1);
+
+        assertThrows(RuntimeException.class, () -> productService.reduceStockBatch(quantities));
+
+        for (Product product : products) {
+            assertEquals(INITIAL_STOCK, stockOf(product));
+        }
+    }
+
+    @Test
+    void batchReturnsCurrentStateOfAlreadyLoadedProducts() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Instancias gestionadas con el stock anterior al UPDATE por JDBC
+            products.forEach(product -> productRepository.findById(product.getId()).orElseThrow());
+
+            for (Product product : productService.reduceStockBatch(checkout(3))) {
+                assertEquals(INITIAL_STOCK - 3, product.getStock());
+            }
+        });
+    }
+
+    private Map<Long, Integer> checkout(int quantity) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        products.forEach(product -> quantities.put(product.getId(), quantity));
+        return quantities;
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
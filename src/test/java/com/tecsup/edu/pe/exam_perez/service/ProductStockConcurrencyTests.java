@@ -0,0 +1,69 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que el descuento de stock concurrente sobre un mismo producto no vende de más
+ * Varios hilos compiten por un stock menor al total solicitado: exactamente el stock
+ * inicial debe venderse y el resto de intentos debe fallar por stock insuficiente.
+ */
+@SpringBootTest(properties = "jwt.revocation.purge-interval-ms=3600000")
+class ProductStockConcurrencyTests {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = StockContention.saveProduct(productRepository, "Producto de prueba concurrente");
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void concurrentReductionsNeverOversell() throws Exception {
+        StockContention.Result result = StockContention.run(() -> productService.reduceStock(product.getId(), 1));
+
+        assertEquals(StockContention.INITIAL_STOCK, result.sold());
+        assertEquals(StockContention.ATTEMPTS - StockContention.INITIAL_STOCK, result.rejected());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void reductionIncrementsVersion() {
+        Long before = productRepository.findById(product.getId()).orElseThrow().getVersion();
+
+        Product updated = productService.reduceStock(product.getId(), 5);
+
+        assertEquals(StockContention.INITIAL_STOCK - 5, updated.getStock());
+        assertTrue(updated.getVersion() > before);
+    }
+
+    @Test
+    void staleUpdateIsRejected() {
+        Product stale = productRepository.findById(product.getId()).orElseThrow();
+        productService.reduceStock(product.getId(), 1);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> productService.updateProduct(product.getId(), stale));
+    }
+}
@@ -0,0 +1,76 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.dto.ProductSuggestion;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica las sugerencias por palabra y por frase y que solo los cambios de nombre,
+ * alta/baja o nivel de stock obligan a reconstruir el trie
+ */
+class ProductSuggestionIndexTests {
+
+    private ProductSuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSuggestionIndex();
+        ReflectionTestUtils.setField(index, "maxResults", 10);
+        index.index(product(1L, 1L, "Laptop Dell XPS", "Dell", 40));
+        index.index(product(2L, 1L, "Monitor Dell UltraSharp", "Dell", 5));
+        index.index(product(3L, 1L, "Mesa de centro", "Casa", 12));
+        index.rebuild();
+    }
+
+    @Test
+    void suggestsByAnyWordAndByPhrase() {
+        assertEquals(List.of("Dell", "Laptop Dell XPS", "Monitor Dell UltraSharp"), texts(index.suggest("del", null)));
+        assertEquals(List.of("Laptop Dell XPS"), texts(index.suggest("dell x", null)));
+        assertEquals(List.of("Mesa de centro"), texts(index.suggest("de c", null)));
+        assertEquals(List.of("Mesa de centro"), texts(index.suggest("mesa ", null)));
+        assertTrue(index.suggest("xps dell", null).isEmpty());
+    }
+
+    @Test
+    void stockChangesRebuildOnlyWhenTheLevelChanges() {
+        AtomicBoolean dirty = (AtomicBoolean) ReflectionTestUtils.getField(index, "dirty");
+
+        index.index(product(1L, 2L, "Laptop Dell XPS", "Dell", 31));
+        assertFalse(dirty.get());
+        assertEquals(31, index.suggest("laptop", null).get(0).score());
+        assertEquals(36, index.suggest("dell", null).stream()
+                .filter(s -> s.type() == ProductSuggestion.Type.BRAND).findFirst().orElseThrow().score());
+
+        index.index(product(1L, 3L, "Laptop Dell XPS", "Dell", 9));
+        assertTrue(dirty.get());
+        index.rebuildIfDirty();
+
+        index.index(product(3L, 2L, "Mesa de comedor", "Casa", 12));
+        assertTrue(dirty.get());
+        index.rebuildIfDirty();
+        assertEquals(List.of("Mesa de comedor"), texts(index.suggest("comedor", null)));
+    }
+
+    private static List<String> texts(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::text).toList();
+    }
+
+    private static Product product(Long id, Long version, String name, String brand, int stock) {
+        Product product = new Product(name, null, new BigDecimal("10.00"), stock, "Pruebas");
+        product.setId(id);
+        product.setVersion(version);
+        product.setActive(true);
+        product.setBrand(brand);
+        return product;
+    }
+}
@@ -0,0 +1,74 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.ExamPerezApplication;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark manual de latencia de un checkout: reduceStockBatch frente a una llamada a reduceStock por línea
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.service.StockBatchBenchmark [líneas] [checkouts]
+ */
+public class StockBatchBenchmark {
+
+    private static final int WARMUP = 20;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int checkouts = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExamPerezApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "spring.jpa.show-sql=false")
+                .run()) {
+            ProductService productService = context.getBean(ProductService.class);
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+
+            Map<Long, Integer> checkout = new LinkedHashMap<>();
+            int initialStock = 2 * (WARMUP + checkouts);
+            for (int i = 0; i < lines; i++) {
+                Product product = productRepository.save(new Product(
+                        "Producto de lote " + i, "Checkout", new BigDecimal("5.00"), initialStock, "Pruebas"));
+                checkout.put(product.getId(), 1);
+            }
+
+            // Calentamiento de ambos caminos
+            for (int i = 0; i < WARMUP; i++) {
+                checkout.forEach(productService::reduceStock);
+                productService.reduceStockBatch(checkout);
+            }
+
+            long[] perItem = new long[checkouts];
+            long[] batch = new long[checkouts];
+            for (int i = 0; i < checkouts; i++) {
+                long start = System.nanoTime();
+                checkout.forEach(productService::reduceStock);
+                perItem[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                productService.reduceStockBatch(checkout);
+                batch[i] = System.nanoTime() - start;
+            }
+
+            System.out.printf("checkout de %d líneas  por línea: %s  lote: %s%n",
+                    lines, summary(perItem), summary(batch));
+        }
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50=%.2f ms p99=%.2f ms",
+                sorted[sorted.length / 2] / 1_000_000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1_000_000.0);
+    }
+}
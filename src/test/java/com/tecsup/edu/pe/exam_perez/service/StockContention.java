@@ -0,0 +1,78 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escenario de contención sobre el stock de un producto, compartido por las pruebas y el benchmark:
+ * THREADS hilos intentan vender una unidad ATTEMPTS_PER_THREAD veces cada uno, más que el stock inicial
+ */
+final class StockContention {
+
+    static final int INITIAL_STOCK = 100;
+    static final int THREADS = 8;
+    static final int ATTEMPTS_PER_THREAD = 50;
+    static final int ATTEMPTS = THREADS * ATTEMPTS_PER_THREAD;
+
+    private StockContention() {
+    }
+
+    static Product saveProduct(ProductRepository productRepository, String name) {
+        return productRepository.save(new Product(
+                name, "Stock disputado", new BigDecimal("10.00"), INITIAL_STOCK, "Pruebas"));
+    }
+
+    /**
+     * Lanzar todas las ventas a la vez; una venta rechazada lanza RuntimeException
+     */
+    static Result run(Runnable sale) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        sale.run();
+                        sold.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new Result(sold.get(), rejected.get(), System.nanoTime() - startNanos);
+    }
+
+    record Result(int sold, int rejected, long elapsedNanos) {
+
+        double opsPerSecond() {
+            return ATTEMPTS / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica la lectura del diario de stock tras una caída, incluida una escritura interrumpida
+ */
+class StockLedgerJournalTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesSurviveReopenInOrder() throws IOException {
+        try (StockLedgerJournal journal = new StockLedgerJournal(directory, 0)) {
+            journal.append(1, -2);
+            journal.append(2, -1);
+            journal.roll();
+            journal.append(1, 3);
+        }
+
+        List<StockLedgerJournal.Entry> entries = StockLedgerJournal.readEntries(directory);
+
+        assertEquals(List.of(
+                new StockLedgerJournal.Entry(1, 1, -2),
+                new StockLedgerJournal.Entry(2, 2, -1),
+                new StockLedgerJournal.Entry(3, 1, 3)), entries);
+    }
+
+    @Test
+    void concurrentAppendsShareForces() throws Exception {
+        int threads = 4;
+        int perThread = 100;
+        try (StockLedgerJournal journal = new StockLedgerJournal(directory, 0)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long productId = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        long sequence;
+                        synchronized (journal) {
+                            sequence = journal.append(productId, -1);
+                        }
+                        journal.awaitDurable(sequence);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertTrue(journal.getForceCount() <= threads * perThread);
+        }
+
+        List<StockLedgerJournal.Entry> entries = StockLedgerJournal.readEntries(directory);
+        assertEquals(threads * perThread, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 1, entries.get(i).sequence());
+        }
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        try (StockLedgerJournal journal = new StockLedgerJournal(directory, 0)) {
+            journal.append(7, -1);
+        }
+        try (var segments = Files.list(directory)) {
+            Path segment = segments.findFirst().orElseThrow();
+            Files.write(segment, new byte[StockLedgerJournal.RECORD_SIZE - 5], StandardOpenOption.APPEND);
+        }
+
+        assertEquals(List.of(new StockLedgerJournal.Entry(1, 7, -1)), StockLedgerJournal.readEntries(directory));
+    }
+
+    @Test
+    void appliedSegmentsAreDeleted() throws IOException {
+        try (StockLedgerJournal journal = new StockLedgerJournal(directory, 10)) {
+            journal.append(1, -1);
+            long cut = journal.roll();
+            journal.append(1, -1);
+
+            journal.deleteSegmentsUpTo(cut);
+
+            assertEquals(List.of(new StockLedgerJournal.Entry(12, 1, -1)), StockLedgerJournal.readEntries(directory));
+        }
+    }
+}
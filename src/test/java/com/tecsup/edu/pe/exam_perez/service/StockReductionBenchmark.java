@@ -0,0 +1,54 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.ExamPerezApplication;
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmark manual de ventas concurrentes sobre un mismo producto (escenario de StockContention)
+ * No es un test (no lo ejecuta surefire). Uso, tras mvn test-compile:
+ *   java -cp target/test-classes:target/classes:<dependencias> \
+ *        com.tecsup.edu.pe.exam_perez.service.StockReductionBenchmark [rondas]
+ * Compara el UPDATE condicional en la BD con el descuento en memoria de HotStockLedger.
+ */
+public class StockReductionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExamPerezApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN",
+                        "spring.jpa.show-sql=false",
+                        "products.hot-stock.enabled=true",
+                        "products.hot-stock.journal-dir=target/stock-benchmark")
+                .run()) {
+            ProductService productService = context.getBean(ProductService.class);
+            ProductRepository productRepository = context.getBean(ProductRepository.class);
+            HotStockFlusher flusher = context.getBean(HotStockFlusher.class);
+            HotStockLedger ledger = context.getBean(HotStockLedger.class);
+
+            System.out.printf("%d intentos con %d hilos por ronda, %d rondas%n",
+                    StockContention.ATTEMPTS, StockContention.THREADS, rounds);
+            for (boolean hot : new boolean[] {false, true}) {
+                double best = 0;
+                for (int round = 0; round < rounds; round++) {
+                    Product product = StockContention.saveProduct(productRepository, "Producto benchmark");
+                    if (hot) {
+                        flusher.flag(product.getId());
+                    }
+                    StockContention.Result result =
+                            StockContention.run(() -> productService.reduceStock(product.getId(), 1));
+                    best = Math.max(best, result.opsPerSecond());
+                    if (hot) {
+                        ledger.remove(product.getId());
+                    }
+                }
+                System.out.printf("%-10s %,10.0f ops/s (mejor ronda)%n", hot ? "memoria" : "BD", best);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.Product;
+import com.tecsup.edu.pe.exam_perez.entity.StockReservation;
+import com.tecsup.edu.pe.exam_perez.repository.ProductRepository;
+import com.tecsup.edu.pe.exam_perez.repository.StockReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifica el ciclo de vida de las reservas de stock y su vencimiento automático
+ * Las reservas duran 1 segundo para no esperar en los tests
+ */
+@SpringBootTest(properties = {
+        "jwt.revocation.purge-interval-ms=3600000",
+        "products.reservations.ttl-seconds=1",
+        "products.reservations.tick-ms=100"
+})
+class StockReservationServiceTests {
+
+    private static final int INITIAL_STOCK = 10;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product(
+                "Producto reservable", "Carrito", new BigDecimal("20.00"), INITIAL_STOCK, "Pruebas"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll(reservationRepository.findAll().stream()
+                .filter(reservation -> reservation.getProductId().equals(product.getId()))
+                .toList());
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void holdAndConfirmKeepStockDiscounted() {
+        StockReservation reservation = reservationService.hold(product.getId(), 3, "tester");
+        assertEquals(INITIAL_STOCK - 3, stock());
+
+        StockReservation confirmed = reservationService.confirm(reservation.getId(), "tester");
+
+        assertEquals(StockReservation.Status.CONFIRMED, confirmed.getStatus());
+        assertEquals(INITIAL_STOCK - 3, stock());
+        assertThrows(RuntimeException.class, () -> reservationService.release(reservation.getId(), "tester"));
+    }
+
+    @Test
+    void releaseReturnsStock() {
+        StockReservation reservation = reservationService.hold(product.getId(), 4, "tester");
+
+        assertThrows(RuntimeException.class, () -> reservationService.release(reservation.getId(), "otro"));
+        reservationService.release(reservation.getId(), "tester");
+
+        assertEquals(INITIAL_STOCK, stock());
+    }
+
+    @Test
+    void holdBeyondStockIsRejected() {
+        assertThrows(RuntimeException.class,
+                () -> reservationService.hold(product.getId(), INITIAL_STOCK + 1, "tester"));
+        assertEquals(INITIAL_STOCK, stock());
+    }
+
+    @Test
+    void expiredHoldReturnsStock() throws InterruptedException {
+        StockReservation reservation = reservationService.hold(product.getId(), 5, "tester");
+        assertEquals(INITIAL_STOCK - 5, stock());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (stock() != INITIAL_STOCK && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(INITIAL_STOCK, stock());
+        assertEquals(StockReservation.Status.EXPIRED,
+                reservationRepository.findById(reservation.getId()).orElseThrow().getStatus());
+        assertThrows(RuntimeException.class, () -> reservationService.confirm(reservation.getId(), "tester"));
+    }
+
+    private int stock() {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
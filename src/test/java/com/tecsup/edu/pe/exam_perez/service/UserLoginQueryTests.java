@@ -0,0 +1,74 @@
+package com.tecsup.edu.pe.exam_perez.service;
+
+import com.tecsup.edu.pe.exam_perez.entity.User;
+import com.tecsup.edu.pe.exam_perez.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifica que un login (por username o por email, correcto o no) emite una sola consulta SQL
+ * El flujo anterior (getUserByUsername, getUserByEmail y AuthenticationManager) emitía hasta tres.
+ */
+@SpringBootTest(properties = "jwt.revocation.purge-interval-ms=3600000")
+class UserLoginQueryTests {
+
+    private static final String USERNAME = "login-consultas";
+    private static final String EMAIL = "login-consultas@tecsup.edu.pe";
+    private static final String PASSWORD = "secret123";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        if (!userRepository.existsByUsername(USERNAME)) {
+            User user = new User();
+            user.setUsername(USERNAME);
+            user.setEmail(EMAIL);
+            user.setPassword(PASSWORD);
+            user.setFirstName("Login");
+            user.setLastName("Pruebas");
+            userService.createUser(user);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void loginByUsernameIssuesOneQuery() {
+        statistics.clear();
+        userService.authenticate(USERNAME, PASSWORD);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void loginByEmailIssuesOneQuery() {
+        statistics.clear();
+        userService.authenticate(EMAIL, PASSWORD);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void failedLoginsIssueOneQueryEach() {
+        statistics.clear();
+        assertThrows(BadCredentialsException.class, () -> userService.authenticate(USERNAME, "incorrecta"));
+        assertThrows(BadCredentialsException.class, () -> userService.authenticate("nadie", "incorrecta"));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}